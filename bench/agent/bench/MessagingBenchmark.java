@@ -0,0 +1,275 @@
+package agent.bench;
+
+import agent.Agent;
+import agent.ExecutionMode;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end message throughput and latency of the agent runtime, in the
+ * three shapes the restaurant uses: a request bouncing between two agents
+ * (waiter and cook), many senders into one agent (everyone paying the
+ * cashier), and one agent telling many (the host telling every waiter a
+ * food is out).  Each operation waits for its last message to be handled,
+ * so the score is a round trip, not just the cost of posting.
+ *
+ * Run with "ant bench -Djmh.home=..."; see build.xml.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessagingBenchmark {
+
+    /**
+     * Ping-pong: the benchmark thread messages A, A's scheduler messages B,
+     * and B's scheduler hands the baton back
+     */
+    @State(Scope.Benchmark)
+    public static class PingPong {
+        @Param({"PLATFORM", "POOLED"})
+        public String mode;
+
+        Relay a;
+        Relay b;
+        final Semaphore done = new Semaphore(0);
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            b = new Relay("b", null, done);
+            a = new Relay("a", b, null);
+            start(mode, a, b);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stop(a, b);
+        }
+    }
+
+    @Benchmark
+    public void pingPong(PingPong s) throws InterruptedException {
+        s.a.msgPing();
+        s.done.acquire();
+    }
+
+    /**
+     * Fan-in: every benchmark thread messages the same sink agent and waits
+     * for its reply
+     */
+    @State(Scope.Benchmark)
+    public static class FanIn {
+        @Param({"PLATFORM", "POOLED"})
+        public String mode;
+
+        Sink sink;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            sink = new Sink("sink");
+            start(mode, sink);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stop(sink);
+        }
+    }
+
+    /**
+     * Each sending thread's own reply channel
+     */
+    @State(Scope.Thread)
+    public static class Sender {
+        final Semaphore reply = new Semaphore(0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fanIn(FanIn s, Sender sender) throws InterruptedException {
+        s.sink.msgWork(sender.reply);
+        sender.reply.acquire();
+    }
+
+    /**
+     * Fan-out: one broadcaster agent messages every listener, and the
+     * operation ends when all of them have handled it
+     */
+    @State(Scope.Benchmark)
+    public static class FanOut {
+        @Param({"PLATFORM", "POOLED"})
+        public String mode;
+
+        @Param({"8"})
+        public int listeners;
+
+        Broadcaster broadcaster;
+        List<Sink> sinks = new ArrayList<Sink>();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < listeners; i++) {
+                sinks.add(new Sink("listener" + i));
+            }
+            broadcaster = new Broadcaster(sinks);
+            start(mode, broadcaster);
+            start(mode, sinks.toArray(new Agent[0]));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stop(broadcaster);
+            stop(sinks.toArray(new Agent[0]));
+        }
+    }
+
+    @Benchmark
+    public void fanOut(FanOut s) throws InterruptedException {
+        CountDownLatch handled = new CountDownLatch(s.listeners);
+        s.broadcaster.msgBroadcast(handled);
+        handled.await();
+    }
+
+    private static void start(String mode, Agent... agents) {
+        for (Agent a : agents) {
+            a.setExecutionMode(ExecutionMode.parse(mode, ExecutionMode.PLATFORM));
+            a.startThread();
+        }
+    }
+
+    private static void stop(Agent... agents) {
+        for (Agent a : agents) {
+            a.stopThread();
+        }
+    }
+
+    /**
+     * Passes each ping to the next agent, or releases a semaphore at the end
+     * of the line
+     */
+    static class Relay extends Agent {
+        private final String name;
+        private final Relay next;
+        private final Semaphore done;
+        private int pings = 0;
+
+        Relay(String name, Relay next, Semaphore done) {
+            this.name = name;
+            this.next = next;
+            this.done = done;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void msgPing() {
+            post(new Runnable() {
+                public void run() {
+                    pings++;
+                }
+            });
+        }
+
+        public boolean pickAndExecuteAnAction() {
+            if (pings > 0) {
+                pings--;
+                if (next != null) {
+                    next.msgPing();
+                } else {
+                    done.release();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Acknowledges every message it receives, like the cashier answering
+     * checks and payments
+     */
+    static class Sink extends Agent {
+        private final String name;
+        private final List<Object> work = new ArrayList<Object>();
+
+        Sink(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void msgWork(final Semaphore reply) {
+            post(new Runnable() {
+                public void run() {
+                    work.add(reply);
+                }
+            });
+        }
+
+        public void msgWork(final CountDownLatch reply) {
+            post(new Runnable() {
+                public void run() {
+                    work.add(reply);
+                }
+            });
+        }
+
+        public boolean pickAndExecuteAnAction() {
+            if (!work.isEmpty()) {
+                Object reply = work.remove(0);
+                if (reply instanceof Semaphore) {
+                    ((Semaphore)reply).release();
+                } else {
+                    ((CountDownLatch)reply).countDown();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Tells every listener about each broadcast, like the host telling every
+     * waiter a food is out
+     */
+    static class Broadcaster extends Agent {
+        private final List<Sink> listeners;
+        private final List<CountDownLatch> broadcasts = new ArrayList<CountDownLatch>();
+
+        Broadcaster(List<Sink> listeners) {
+            this.listeners = listeners;
+        }
+
+        public String getName() {
+            return "broadcaster";
+        }
+
+        public void msgBroadcast(final CountDownLatch handled) {
+            post(new Runnable() {
+                public void run() {
+                    broadcasts.add(handled);
+                }
+            });
+        }
+
+        public boolean pickAndExecuteAnAction() {
+            if (!broadcasts.isEmpty()) {
+                CountDownLatch handled = broadcasts.remove(0);
+                for (Sink s : listeners) {
+                    s.msgWork(handled);
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package agent;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import restaurant.test.mock.EventLog;
 
@@ -8,22 +12,176 @@ import restaurant.test.mock.EventLog;
  * Base class for simple agents
  */
 public abstract class Agent {
-    Semaphore stateChange = new Semaphore(1, true);
+    Wakeup stateChange;
     Semaphore pause = new Semaphore(0, true);
     private AgentThread agentThread;
-    private boolean paused = false;
+    private volatile AgentTask agentTask;
+    private volatile boolean paused = false;
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+    private final Mailbox mailbox = new Mailbox();
+    //Messages to other agents sent by the action running now, and the thread running it
+    private final List<Runnable> outbox = new ArrayList<Runnable>();
+    private volatile Thread schedulerThread;
+    private TimerService timers;
+    private volatile RingLogger.Level logLevel = DEFAULT_LOG_LEVEL;
     public EventLog log;
 
+    //Set when the agent is driven by a Simulation instead of running freely
+    Simulation simulation;
+    Simulation.Actor simulationActor;
+
+    private final AgentStats stats = new AgentStats(this);
+    //This agent's place in the AgentRegistry while it is started
+    private AgentRegistry.Entry registration;
+
+    //Level new agents start at; -Dagent.log=info (or warn, off) quiets large runs
+    private static final RingLogger.Level DEFAULT_LOG_LEVEL =
+        RingLogger.Level.parse(System.getProperty("agent.log"), RingLogger.Level.DEBUG);
+
     protected Agent() {
+    	this(false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param fairWakeup true to wake the agent through a fair (FIFO) semaphore
+     */
+    protected Agent(boolean fairWakeup) {
+    	stateChange = new Wakeup(fairWakeup, true);
     	log = new EventLog();
     }
 
     /**
      * This should be called whenever state has changed that might cause
-     * the agent to do something.
+     * the agent to do something.  Calls made while a wake is already pending
+     * are coalesced into that wake.
      */
     protected void stateChanged() {
-        stateChange.release();
+        AgentTask task = agentTask;
+        boolean woke;
+        if (task != null) {
+            woke = task.wake();
+        } else if (simulation != null) {
+            woke = simulation.wake(this);
+        } else {
+            woke = stateChange.signal();
+        }
+        stats.wake(!woke);
+    }
+
+    /**
+     * Returns how many times stateChanged() has been called
+     */
+    public long getWakeCount() {
+        return stats.getWakeCount();
+    }
+
+    /**
+     * Returns how many stateChanged() calls were absorbed by an already pending wake
+     */
+    public long getCoalescedWakeCount() {
+        return stats.getCoalescedWakeCount();
+    }
+
+    /**
+     * Returns how many times the agent woke up and ran its scheduler
+     */
+    public long getSchedulerPassCount() {
+        return stats.getSchedulerPassCount();
+    }
+
+    /**
+     * Returns how many scheduler passes found nothing to do (spurious wakes)
+     */
+    public long getIdlePassCount() {
+        return stats.getIdlePassCount();
+    }
+
+    /**
+     * Returns how many times pickAndExecuteAnAction() executed an action
+     */
+    public long getActionCount() {
+        return stats.getActionCount();
+    }
+
+    /**
+     * Returns the agent's scheduler instrumentation
+     */
+    public AgentStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Marks the start of a scheduler rule's action, for the per-rule counts
+     * and times in getStats().  Call it from pickAndExecuteAnAction() just
+     * before the action; the time until the next rule or the end of the call
+     * is charged to this one.
+     *
+     * @param name Name of the rule
+     */
+    protected void rule(String name) {
+        stats.beginRule(name);
+    }
+
+    /**
+     * Queues a message for the agent to apply on its own scheduler thread, just
+     * before its next call to pickAndExecuteAnAction().  A msg* method that
+     * posts its state change instead of applying it directly never touches the
+     * agent's data from the sender's thread, so that data needs no locks.
+     *
+     * @param message Code that applies the message to the agent's state
+     */
+    protected void post(Runnable message) {
+        mailbox.offer(message);
+        stateChanged();
+    }
+
+    /**
+     * Sends a message to another agent once the current action is over.  An
+     * action that calls send() instead of calling the other agent directly
+     * is holding none of its own locks when the message goes out, so it can
+     * never wait on the other agent while the other waits on it.  Messages go
+     * out in the order they were sent, as soon as pickAndExecuteAnAction()
+     * returns or the action blocks in acquire().  Outside a scheduler pass, e.g. when a unit test calls
+     * pickAndExecuteAnAction() itself, the message is sent right away.
+     *
+     * @param message Code that calls the other agent's msg* method
+     */
+    protected void send(Runnable message) {
+        if (Thread.currentThread() == schedulerThread) {
+            outbox.add(message);
+        } else {
+            message.run();
+        }
+    }
+
+    /**
+     * Sends every message the last action put in the outbox
+     */
+    private void flushOutbox() {
+        if (outbox.isEmpty()) {
+            return;
+        }
+        List<Runnable> messages = new ArrayList<Runnable>(outbox);
+        outbox.clear();
+        for (Runnable message : messages) {
+            message.run();
+        }
+    }
+
+    /**
+     * Applies every posted message that has arrived so far, as the scheduler
+     * does before each call to pickAndExecuteAnAction().  Unit tests that
+     * drive an agent without starting its thread call the agent's msg*
+     * methods, then this, then pickAndExecuteAnAction().  Never call it while
+     * the agent's own thread is running.
+     */
+    public void deliverMessages() { //Public for unit testing
+        Runnable message;
+        while ((message = mailbox.poll()) != null) {
+            message.run();
+        }
     }
 
     /**
@@ -48,37 +206,151 @@ public abstract class Agent {
      * The simulated action code
      */
     protected void Do(String msg) {
-        print(msg, null);
+        log(RingLogger.Level.DEBUG, msg, null, null);
+    }
+
+    /**
+     * The simulated action code, with "{}" in msg replaced by each argument
+     */
+    protected void Do(String msg, Object... args) {
+        log(RingLogger.Level.DEBUG, msg, args, null);
     }
 
     /**
      * Print message
      */
     protected void print(String msg) {
-        print(msg, null);
+        log(RingLogger.Level.INFO, msg, null, null);
+    }
+
+    /**
+     * Print message, with "{}" in msg replaced by each argument.  The
+     * arguments are only turned into text if the message is printed.
+     */
+    protected void print(String msg, Object... args) {
+        log(RingLogger.Level.INFO, msg, args, null);
     }
 
     /**
      * Print message with exception stack trace
      */
     protected void print(String msg, Throwable e) {
-        StringBuffer sb = new StringBuffer();
-        sb.append(getName());
-        sb.append(": ");
-        sb.append(msg);
-        sb.append("\n");
-        if (e != null) {
-            sb.append(StringUtil.stackTraceString(e));
+        log(RingLogger.Level.WARN, msg, null, e);
+    }
+
+    private void log(RingLogger.Level level, String msg, Object[] args, Throwable e) {
+        if (level.compareTo(logLevel) >= 0) {
+            RingLogger.getDefault().log(getName(), msg, args, e);
+        }
+    }
+
+    /**
+     * Returns the least important level of message this agent prints
+     */
+    public RingLogger.Level getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Sets the least important level of message this agent prints
+     *
+     * @param level DEBUG for everything, INFO to drop Do() narration, WARN
+     * for exceptions only, OFF for nothing
+     */
+    public void setLogLevel(RingLogger.Level level) {
+        logLevel = level;
+    }
+
+    /**
+     * Blocks until a permit is available from the semaphore.  Actions should
+     * use this instead of calling s.acquire() directly so that a POOLED agent
+     * lets the pool start another worker while it waits, and a simulated one
+     * hands control back to its Simulation.
+     *
+     * @param s Semaphore to acquire
+     */
+    protected void acquire(Semaphore s) throws InterruptedException {
+        //whatever releases s may be waiting on a message we have yet to send
+        if (Thread.currentThread() == schedulerThread) {
+            flushOutbox();
+        }
+        long start = System.nanoTime();
+        try {
+            if (simulation != null) {
+                simulation.acquire(this, s);
+            } else if (agentTask != null && ForkJoinTask.inForkJoinPool()) {
+                ForkJoinPool.managedBlock(new SemaphoreBlocker(s));
+            } else {
+                s.acquire();
+            }
+        } finally {
+            stats.blocked(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the clock and timer the agent schedules its timed work with
+     */
+    public synchronized TimerService getTimerService() {
+        if (timers == null) {
+            timers = TimingWheel.getDefault();
+        }
+        return timers;
+    }
+
+    /**
+     * Sets the clock and timer the agent schedules its timed work with
+     *
+     * @param timers Reference to TimerService
+     */
+    public synchronized void setTimerService(TimerService timers) {
+        this.timers = timers;
+    }
+
+    /**
+     * Returns a source of random numbers; seeded and repeatable when the agent
+     * runs in a Simulation
+     */
+    protected Random random() {
+        if (simulation != null) {
+            return simulation.getRandom();
         }
-        System.out.print(sb.toString());
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * Returns the kind of thread the agent's scheduler runs on
+     */
+    public ExecutionMode getExecutionMode() {
+        return mode;
+    }
+
+    /**
+     * Chooses the kind of thread the agent's scheduler runs on. Takes effect
+     * the next time the thread is started.
+     *
+     * @param mode PLATFORM, VIRTUAL or POOLED
+     */
+    public void setExecutionMode(ExecutionMode mode) {
+        this.mode = mode;
     }
 
     /**
      * Start agent scheduler thread.  Should be called once at init time.
      */
     public synchronized void startThread() {
-        if (agentThread == null) {
-            agentThread = new AgentThread(getName());
+        if (registration == null) {
+            registration = AgentRegistry.register(stats);
+        }
+        if (simulation != null) {
+            simulation.wake(this); // first pass, like the initial stateChange permit
+        } else if (mode == ExecutionMode.POOLED) {
+            if (agentTask == null) {
+                agentTask = new AgentTask();
+                agentTask.wake(); // first pass, like the initial stateChange permit
+            }
+        } else if (agentThread == null) {
+            agentThread = new AgentThread(getName(), mode);
             agentThread.start(); // causes the run method to execute in the AgentThread below
         } else {
             agentThread.interrupt();//don't worry about this for now
@@ -98,27 +370,81 @@ public abstract class Agent {
     public void resume() {
     	paused = false;
     	pause.release();
+    	AgentTask task = agentTask;
+    	if (task != null) {
+    		task.wake();
+    	}
     }
 
     /**
      * Stop agent scheduler thread.
      */
-    public void stopThread() {
+    public synchronized void stopThread() {
+        if (registration != null) {
+            AgentRegistry.unregister(registration);
+            registration = null;
+        }
         if (agentThread != null) {
             agentThread.stopAgent();
             agentThread = null;
         }
+        if (agentTask != null) {
+            agentTask.stopAgent();
+            agentTask = null;
+        }
+    }
+
+    /**
+     * Calls the scheduler repeatedly until it finds nothing to do
+     */
+    void runScheduler() {
+        boolean acted = false;
+        long start = System.nanoTime();
+        schedulerThread = Thread.currentThread();
+        try {
+            //When the agent wakes up it will call pickAndExecuteAnAction()
+            //repeatedly until it returns FALSE, applying posted messages first.
+            for (;;) {
+                deliverMessages();
+                boolean action;
+                try {
+                    action = pickAndExecuteAnAction();
+                } finally {
+                    stats.endRule(System.nanoTime());
+                    flushOutbox();
+                }
+                if (action) {
+                    stats.action();
+                    acted = true;
+                } else if (mailbox.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            schedulerThread = null;
+            stats.pass(acted, System.nanoTime() - start);
+        }
     }
 
     /**
      * Agent scheduler thread, calls respondToStateChange() whenever a state
-     * change has been signalled.
+     * change has been signalled.  Runs on a platform or virtual thread
+     * depending on the agent's ExecutionMode.
      */
-    private class AgentThread extends Thread {
+    private class AgentThread implements Runnable {
         private volatile boolean goOn = false;
+        private final Thread thread;
+
+        private AgentThread(String name, ExecutionMode mode) {
+            thread = mode.newThread(name, this);
+        }
+
+        private void start() {
+            thread.start();
+        }
 
-        private AgentThread(String name) {
-            super(name);
+        private void interrupt() {
+            thread.interrupt();
         }
 
         public void run() {
@@ -127,16 +453,17 @@ public abstract class Agent {
             while (goOn) {
                 try {
                 	if (paused) {
+                		long start = System.nanoTime();
                 		pause.acquire();
+                		stats.paused(System.nanoTime() - start);
                 	}
                     // The agent sleeps here until someone calls, stateChanged(),
-                    // which causes a call to stateChange.give(), which wakes up agent.
-                    stateChange.acquire();
-                    //The next while clause is the key to the control flow.
-                    //When the agent wakes up it will call respondToStateChange()
-                    //repeatedly until it returns FALSE.
+                    // which causes a call to stateChange.signal(), which wakes up agent.
+                    long start = System.nanoTime();
+                    stateChange.await();
+                    stats.waitedForWakeup(System.nanoTime() - start);
                     //You will see that pickAndExecuteAnAction() is the agent scheduler.
-                    while (pickAndExecuteAnAction()) ;
+                    runScheduler();
                 } catch (InterruptedException e) {
                     // no action - expected when stopping or when deadline changed
                 } catch (Exception e) {
@@ -147,8 +474,77 @@ public abstract class Agent {
 
         private void stopAgent() {
             goOn = false;
-            this.interrupt();
+            thread.interrupt();
         }
     }
-}
 
+    /**
+     * Scheduler task for POOLED agents.  stateChanged() submits it to the
+     * shared pool unless it is already queued or running; it then drains the
+     * scheduler and goes idle until the next state change.
+     */
+    private class AgentTask implements Runnable {
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private volatile boolean pending = false;
+        private volatile boolean goOn = true;
+
+        private boolean wake() {
+            pending = true;
+            if (goOn && scheduled.compareAndSet(false, true)) {
+                AgentPool.get().execute(this);
+                return true;
+            }
+            return false;
+        }
+
+        public void run() {
+            for (;;) {
+                if (goOn && !paused) {
+                    pending = false;
+                    try {
+                        runScheduler();
+                    } catch (Exception e) {
+                        print("Unexpected exception caught in Agent task:", e);
+                    }
+                }
+                scheduled.set(false);
+                // A state change that arrived while we were running could not
+                // requeue us, so pick it up here instead of losing it.
+                if (!pending || paused || !goOn || !scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private void stopAgent() {
+            goOn = false;
+        }
+    }
+
+    /**
+     * Lets a pool worker blocked on a Semaphore be compensated by another worker
+     */
+    private static class SemaphoreBlocker implements ForkJoinPool.ManagedBlocker {
+        private final Semaphore s;
+        private boolean acquired = false;
+
+        SemaphoreBlocker(Semaphore s) {
+            this.s = s;
+        }
+
+        public boolean block() throws InterruptedException {
+            if (!acquired) {
+                s.acquire();
+                acquired = true;
+            }
+            return true;
+        }
+
+        public boolean isReleasable() {
+            if (!acquired) {
+                acquired = s.tryAcquire();
+            }
+            return acquired;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package agent;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The work-stealing pool shared by all POOLED agents
+ */
+class AgentPool {
+    /**
+     * Don't construct.
+     */
+    private AgentPool() {
+    }
+
+    /**
+     * Created on first use so thread-per-agent restaurants never start it
+     */
+    private static class Holder {
+        // asyncMode keeps submitted agents in FIFO order
+        static final ForkJoinPool POOL = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors(),
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    /**
+     * Returns the shared pool
+     */
+    static ForkJoinPool get() {
+        return Holder.POOL;
+    }
+}
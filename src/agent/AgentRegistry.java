@@ -0,0 +1,148 @@
+package agent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide list of the stats of every agent that has been started, so
+ * a busy run can be asked which agent is the bottleneck.  Agents add
+ * themselves in startThread() and remove themselves in stopThread().
+ *
+ * The registry only holds its agents weakly: an agent nothing else refers
+ * to any more, such as a customer who has left and been dropped, is
+ * forgotten once it is garbage collected, whether or not it was stopped.
+ * Adding and removing are O(1); listing sorts the agents by start order.
+ */
+public class AgentRegistry {
+    private static final Set<Entry> stats = Collections.newSetFromMap(new ConcurrentHashMap<Entry, Boolean>());
+    //Entries whose agents have been garbage collected, to be taken out of stats
+    private static final ReferenceQueue<AgentStats> cleared = new ReferenceQueue<AgentStats>();
+    private static final AtomicLong started = new AtomicLong();
+
+    /**
+     * Don't construct.
+     */
+    private AgentRegistry() {
+    }
+
+    /**
+     * Adds an agent's stats
+     *
+     * @param s Stats of an agent being started
+     * @return the entry to pass to unregister
+     */
+    static Entry register(AgentStats s) {
+        prune();
+        Entry e = new Entry(s);
+        stats.add(e);
+        return e;
+    }
+
+    /**
+     * Removes an agent's stats
+     *
+     * @param e Entry returned by register
+     */
+    static void unregister(Entry e) {
+        stats.remove(e);
+    }
+
+    /**
+     * Takes the entries of agents that have been garbage collected out of the registry
+     */
+    private static void prune() {
+        Reference<? extends AgentStats> r;
+        while ((r = cleared.poll()) != null) {
+            stats.remove(r);
+        }
+    }
+
+    /**
+     * Returns the stats of every registered agent, in the order they started
+     */
+    public static List<AgentStats> getAll() {
+        prune();
+        List<Entry> entries = new ArrayList<Entry>(stats);
+        Collections.sort(entries);
+        List<AgentStats> all = new ArrayList<AgentStats>(entries.size());
+        for (Entry e : entries) {
+            AgentStats s = e.get();
+            if (s != null) {
+                all.add(s);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns the stats of the first registered agent with the given name
+     *
+     * @param name Agent name
+     * @return the stats, or null if no such agent is registered
+     */
+    public static AgentStats find(String name) {
+        for (AgentStats s : getAll()) {
+            if (s.getName().equals(name)) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the stats of every registered agent, most time spent in the
+     * scheduler first
+     */
+    public static List<AgentStats> getBusiest() {
+        List<AgentStats> all = getAll();
+        Collections.sort(all, new Comparator<AgentStats>() {
+            public int compare(AgentStats a, AgentStats b) {
+                return Long.compare(b.getSchedulerNanos(), a.getSchedulerNanos());
+            }
+        });
+        return all;
+    }
+
+    /**
+     * Returns a report of the busiest agents, one per paragraph
+     *
+     * @param limit Maximum number of agents to include
+     */
+    public static String report(int limit) {
+        StringBuilder sb = new StringBuilder();
+        for (AgentStats s : getBusiest()) {
+            if (limit-- <= 0) {
+                break;
+            }
+            sb.append(s).append(Constants.EOL);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Forgets every registered agent
+     */
+    public static void clear() {
+        stats.clear();
+    }
+
+    /**
+     * One registered agent's stats, held weakly, and when the agent started
+     * relative to the others. Entries are equal only to themselves.
+     */
+    static final class Entry extends WeakReference<AgentStats> implements Comparable<Entry> {
+        private final long order = started.getAndIncrement();
+
+        private Entry(AgentStats s) {
+            super(s, cleared);
+        }
+
+        public int compareTo(Entry o) {
+            return Long.compare(order, o.order);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package agent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one agent's scheduler has been doing: how often it was woken, how
+ * long it spent in pickAndExecuteAnAction(), how long it sat waiting for a
+ * wake, a resume or a semaphore, and which rules fired.  Every agent has one;
+ * started agents can be looked up in the AgentRegistry.
+ *
+ * Apart from the wake counters, only the agent's own scheduler writes these
+ * numbers, so reading them from another thread gives a consistent but
+ * possibly slightly stale view.
+ */
+public class AgentStats {
+    private final Agent agent;
+
+    private final LongAdder wakes = new LongAdder();
+    private final LongAdder coalescedWakes = new LongAdder();
+    private volatile long schedulerPasses = 0;
+    private volatile long idlePasses = 0;
+    private volatile long actions = 0;
+    private volatile long schedulerNanos = 0;
+    private volatile long wakeupWaitNanos = 0;
+    private volatile long pauseNanos = 0;
+    private volatile long blockedNanos = 0;
+
+    private final Map<String, Rule> rules = new ConcurrentHashMap<String, Rule>();
+    private Rule openRule;
+    private long openRuleStart;
+
+    AgentStats(Agent agent) {
+        this.agent = agent;
+    }
+
+    /**
+     * Returns the name of the agent these numbers belong to
+     */
+    public String getName() {
+        return agent.getName();
+    }
+
+    /**
+     * Returns how many times stateChanged() has been called
+     */
+    public long getWakeCount() {
+        return wakes.sum();
+    }
+
+    /**
+     * Returns how many stateChanged() calls were absorbed by an already pending wake
+     */
+    public long getCoalescedWakeCount() {
+        return coalescedWakes.sum();
+    }
+
+    /**
+     * Returns how many times the agent woke up and ran its scheduler
+     */
+    public long getSchedulerPassCount() {
+        return schedulerPasses;
+    }
+
+    /**
+     * Returns how many scheduler passes found nothing to do (spurious wakes)
+     */
+    public long getIdlePassCount() {
+        return idlePasses;
+    }
+
+    /**
+     * Returns how many times pickAndExecuteAnAction() executed an action
+     */
+    public long getActionCount() {
+        return actions;
+    }
+
+    /**
+     * Returns the fraction of scheduler passes that found nothing to do
+     */
+    public double getIdleRatio() {
+        long passes = schedulerPasses;
+        return passes == 0 ? 0 : (double)idlePasses / passes;
+    }
+
+    /**
+     * Returns the time spent delivering messages and running
+     * pickAndExecuteAnAction(), in nanoseconds, including time blocked
+     * inside actions
+     */
+    public long getSchedulerNanos() {
+        return schedulerNanos;
+    }
+
+    /**
+     * Returns the time the agent's thread spent waiting for a state change,
+     * in nanoseconds
+     */
+    public long getWakeupWaitNanos() {
+        return wakeupWaitNanos;
+    }
+
+    /**
+     * Returns the time the agent's thread spent paused, in nanoseconds
+     */
+    public long getPauseNanos() {
+        return pauseNanos;
+    }
+
+    /**
+     * Returns the time actions spent blocked in Agent.acquire(), in nanoseconds
+     */
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+
+    /**
+     * Returns the names of the rules that have fired, in no particular order
+     */
+    public Set<String> getRuleNames() {
+        return Collections.unmodifiableSet(rules.keySet());
+    }
+
+    /**
+     * Returns how many times the named rule fired
+     */
+    public long getRuleCount(String rule) {
+        Rule r = rules.get(rule);
+        return r == null ? 0 : r.count;
+    }
+
+    /**
+     * Returns the time spent in the named rule's actions, in nanoseconds
+     */
+    public long getRuleNanos(String rule) {
+        Rule r = rules.get(rule);
+        return r == null ? 0 : r.nanos;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getName());
+        sb.append(": passes=").append(schedulerPasses);
+        sb.append(" idle=").append(idlePasses);
+        sb.append(" actions=").append(actions);
+        sb.append(" wakes=").append(getWakeCount());
+        sb.append(" coalesced=").append(getCoalescedWakeCount());
+        sb.append(" scheduler=").append(schedulerNanos / 1000000).append("ms");
+        sb.append(" waiting=").append(wakeupWaitNanos / 1000000).append("ms");
+        sb.append(" paused=").append(pauseNanos / 1000000).append("ms");
+        sb.append(" blocked=").append(blockedNanos / 1000000).append("ms");
+        List<String> names = new ArrayList<String>(rules.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            Rule r = rules.get(name);
+            sb.append(Constants.EOL).append("    ").append(name);
+            sb.append(": ").append(r.count).append(" in ").append(r.nanos / 1000).append("us");
+        }
+        return sb.toString();
+    }
+
+    //Recording, called by Agent
+
+    void wake(boolean coalesced) {
+        wakes.increment();
+        if (coalesced) {
+            coalescedWakes.increment();
+        }
+    }
+
+    void pass(boolean acted, long nanos) {
+        schedulerPasses++;
+        if (!acted) {
+            idlePasses++;
+        }
+        schedulerNanos += nanos;
+    }
+
+    void action() {
+        actions++;
+    }
+
+    void waitedForWakeup(long nanos) {
+        wakeupWaitNanos += nanos;
+    }
+
+    void paused(long nanos) {
+        pauseNanos += nanos;
+    }
+
+    void blocked(long nanos) {
+        blockedNanos += nanos;
+    }
+
+    /**
+     * Starts timing a rule's action, ending the one before it
+     */
+    void beginRule(String name) {
+        long now = System.nanoTime();
+        endRule(now);
+        Rule r = rules.get(name);
+        if (r == null) {
+            r = new Rule();
+            rules.put(name, r);
+        }
+        r.count++;
+        openRule = r;
+        openRuleStart = now;
+    }
+
+    /**
+     * Charges the time since the open rule began to it
+     */
+    void endRule(long now) {
+        if (openRule != null) {
+            openRule.nanos += now - openRuleStart;
+            openRule = null;
+        }
+    }
+
+    private static class Rule {
+        volatile long count = 0;
+        volatile long nanos = 0;
+    }
+}
@@ -0,0 +1,84 @@
+package agent;
+
+import java.lang.reflect.Method;
+
+/**
+ * The kind of thread an agent's scheduler loop runs on
+ */
+public enum ExecutionMode {
+    /**
+     * One operating system thread per agent (the original behavior)
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per agent. Blocking on a Semaphore only parks the
+     * virtual thread, so many thousands of agents can share a few carriers.
+     * Falls back to PLATFORM on JVMs without virtual threads (before Java 21).
+     */
+    VIRTUAL,
+    /**
+     * No thread of its own. The agent is queued as a task on a shared
+     * work-stealing pool sized to the number of cores whenever its state
+     * changes, and a worker runs its scheduler until it returns false.
+     */
+    POOLED;
+
+    private static Method ofVirtual;
+    private static Method name;
+    private static Method unstarted;
+
+    static {
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (Exception e) {
+            ofVirtual = null;
+        }
+    }
+
+    /**
+     * Checks whether this mode can be honored by the running JVM
+     *
+     * @return false if this is VIRTUAL and the JVM has no virtual threads, true otherwise
+     */
+    public boolean isSupported() {
+        return this != VIRTUAL || ofVirtual != null;
+    }
+
+    /**
+     * Creates an unstarted thread of this kind (POOLED agents do not use one)
+     *
+     * @param threadName Name of the thread
+     * @param r Code the thread runs
+     */
+    Thread newThread(String threadName, Runnable r) {
+        if (this == VIRTUAL && ofVirtual != null) {
+            try {
+                Object builder = name.invoke(ofVirtual.invoke(null), threadName);
+                return (Thread) unstarted.invoke(builder, r);
+            } catch (Exception e) {
+                // fall through to a platform thread
+            }
+        }
+        return new Thread(r, threadName);
+    }
+
+    /**
+     * Returns the mode named by the given string, ignoring case
+     *
+     * @param s Name of the mode, may be null
+     * @param def Mode to return if s is null or unknown
+     */
+    public static ExecutionMode parse(String s, ExecutionMode def) {
+        if (s != null) {
+            for (ExecutionMode m : values()) {
+                if (m.name().equalsIgnoreCase(s.trim())) {
+                    return m;
+                }
+            }
+        }
+        return def;
+    }
+}
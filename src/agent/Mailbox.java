@@ -0,0 +1,72 @@
+package agent;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free multi-producer, single-consumer queue of messages for one agent.
+ * Any thread may offer a message; only the owning agent's scheduler polls.
+ * Producers never block each other or the consumer: an offer is a single
+ * atomic swap of the tail.
+ */
+public class Mailbox {
+    private final AtomicReference<Node> tail;
+    private Node head; // touched only by the consumer
+
+    /**
+     * Constructor
+     */
+    public Mailbox() {
+        Node stub = new Node(null);
+        head = stub;
+        tail = new AtomicReference<Node>(stub);
+    }
+
+    /**
+     * Adds a message to the end of the mailbox.  Safe to call from any thread.
+     *
+     * @param message Code that applies the message to the owning agent
+     */
+    public void offer(Runnable message) {
+        Node n = new Node(message);
+        Node prev = tail.getAndSet(n);
+        prev.next = n; // until this write the consumer sees the queue as ending at prev
+    }
+
+    /**
+     * Removes and returns the oldest message.  Must only be called by the owner.
+     *
+     * @return the message, or null if none is visible yet
+     */
+    public Runnable poll() {
+        Node next = head.next;
+        if (next == null) {
+            return null;
+        }
+        Runnable message = next.message;
+        next.message = null;
+        head = next;
+        return message;
+    }
+
+    /**
+     * Checks whether the mailbox has no messages, including ones a producer
+     * has claimed but not yet linked in
+     *
+     * @return true if there is nothing to deliver, false otherwise
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * A link in the queue
+     */
+    private static class Node {
+        volatile Node next;
+        Runnable message;
+
+        Node(Runnable message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package agent;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logger behind Agent.print and Agent.Do.  Agents only claim a
+ * slot in a preallocated ring and store references to the message pieces;
+ * a single daemon thread turns them into text and writes them to the output
+ * in batches.  Agent threads therefore never contend on the stdout lock, and
+ * a message below an agent's level costs nothing but the level check.
+ *
+ * Arguments are formatted on the drainer thread, after the call returns, so
+ * they should be values that do not change (names, numbers, strings).  When
+ * the ring is full, writers wait for the drainer rather than drop messages.
+ */
+public class RingLogger {
+
+    /**
+     * How much an agent says, from most to least
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, OFF;
+
+        /**
+         * Parses a level name, ignoring case
+         *
+         * @param s Level name, or null
+         * @param def Level returned when s is null or not a level
+         */
+        public static Level parse(String s, Level def) {
+            if (s != null) {
+                for (Level l : values()) {
+                    if (l.name().equalsIgnoreCase(s.trim())) {
+                        return l;
+                    }
+                }
+            }
+            return def;
+        }
+    }
+
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(0);
+    private volatile long freed = 0;   // slots the drainer has emptied
+    private volatile long drained = 0; // messages written to the stream
+    private volatile boolean idle = false; // drainer parked until the next message
+    private final PrintStream out;
+    private final Thread drainer;
+    private final StringBuilder batch = new StringBuilder(8192); // drainer only
+
+    /**
+     * Constructor
+     *
+     * @param capacity Number of slots; rounded up to a power of two
+     * @param out Stream the drainer writes to
+     */
+    public RingLogger(int capacity, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        mask = size - 1;
+        this.out = out;
+        drainer = new Thread(new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "RingLogger");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Returns the process-wide logger used by agents
+     */
+    public static RingLogger getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Queues a message.  "{}" in the format is replaced by the next argument.
+     *
+     * @param name Name of the agent talking
+     * @param format Message, with a "{}" for each argument
+     * @param args Arguments, formatted later on the drainer thread
+     * @param e Exception whose stack trace follows the message, or null
+     */
+    public void log(String name, String format, Object[] args, Throwable e) {
+        long seq = claimed.getAndIncrement();
+        Slot slot = ring[(int)seq & mask];
+        //wait until the drainer has emptied the slot from the last lap
+        for (int spins = 0; seq - ring.length >= freed; spins++) {
+            backOff(spins);
+        }
+        slot.name = name;
+        slot.format = format;
+        slot.args = args;
+        slot.error = e;
+        slot.published = seq;
+        //idle is set before the drainer looks at the ring one last time, so
+        //either it sees this message or we see it parked
+        if (idle) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /**
+     * Blocks until every message queued before the call has been written
+     */
+    public void flush() {
+        long target = claimed.get();
+        for (int spins = 0; drained < target && drainer.isAlive(); spins++) {
+            backOff(spins);
+        }
+    }
+
+    /**
+     * Returns the number of messages queued so far
+     */
+    public long getMessageCount() {
+        return claimed.get();
+    }
+
+    private static void backOff(int spins) {
+        if (spins < 100) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(100000L);
+        }
+    }
+
+    /**
+     * Body of the drainer thread
+     */
+    private void drain() {
+        long next = 0;
+        for (;;) {
+            Slot slot = ring[(int)next & mask];
+            if (slot.published != next) {
+                if (batch.length() > 0) {
+                    write();
+                }
+                drained = next;
+                idle = true;
+                if (slot.published != next) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                format(slot);
+            } catch (RuntimeException e) {
+                batch.append(" <").append(e).append(">\n");
+            }
+            slot.name = null;
+            slot.format = null;
+            slot.args = null;
+            slot.error = null;
+            next++;
+            freed = next;
+            if (batch.length() >= 8192) {
+                write();
+                drained = next;
+            }
+        }
+    }
+
+    private void write() {
+        out.print(batch);
+        out.flush();
+        batch.setLength(0);
+    }
+
+    private void format(Slot slot) {
+        batch.append(slot.name).append(": ");
+        String f = slot.format;
+        Object[] args = slot.args;
+        int from = 0;
+        if (args != null) {
+            for (Object arg : args) {
+                int at = f.indexOf("{}", from);
+                if (at < 0) {
+                    break;
+                }
+                batch.append(f, from, at).append(arg);
+                from = at + 2;
+            }
+        }
+        batch.append(f, from, f.length()).append('\n');
+        if (slot.error != null) {
+            batch.append(StringUtil.stackTraceString(slot.error));
+        }
+    }
+
+    /**
+     * One preallocated message.  published is the sequence number of the
+     * last message written into it.
+     */
+    private static class Slot {
+        volatile long published = -1;
+        String name;
+        String format;
+        Object[] args;
+        Throwable error;
+    }
+
+    /**
+     * Lazily creates the default logger and flushes it when the JVM exits
+     */
+    private static class Holder {
+        static final RingLogger DEFAULT = new RingLogger(8192, System.out);
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    DEFAULT.flush();
+                }
+            }, "RingLogger flush"));
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package agent;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Deterministic discrete-event kernel.  Only one agent of a simulation ever
+ * runs at a time: the kernel hands a baton to the agent whose state changed
+ * first, waits for it to finish its scheduler pass (or to block inside an
+ * action), then moves on to the next.  When no agent has anything left to do
+ * it jumps the virtual clock straight to the next timed event (cooking done,
+ * customer done eating, ...) instead of sleeping.  A whole evening of service
+ * therefore takes only as long as the agents' own code, and the same seed
+ * always produces the same run.
+ *
+ * Each agent still gets a thread of its own kind so that actions can wait on
+ * semaphores, but those threads never run concurrently.  run() and runUntil()
+ * must be called from a thread outside the simulation.
+ */
+public class Simulation implements TimerService {
+    private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+    private final ArrayDeque<Actor> ready = new ArrayDeque<Actor>();
+    private final List<Actor> blocked = new ArrayList<Actor>();
+    private final Semaphore kernelTurn = new Semaphore(0);
+    private final Random random;
+    private long now = 0;
+    private long sequence = 0;
+    private long eventsFired = 0;
+
+    /**
+     * Constructor
+     */
+    public Simulation() {
+        this(0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param seed Seed for the random numbers handed to agents
+     */
+    public Simulation(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Puts an agent under the control of this simulation.  Call before the
+     * agent's startThread(), which then queues its first scheduler pass
+     * instead of letting it run freely.
+     *
+     * @param a Reference to Agent
+     */
+    public void add(Agent a) {
+        a.simulationActor = new Actor(a);
+        a.simulation = this;
+        a.setTimerService(this);
+    }
+
+    /**
+     * Returns the virtual time in milliseconds since the simulation started
+     */
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    public Timeout schedule(Runnable task, long delay) {
+        Event e = new Event(now + Math.max(0, delay), sequence++, task);
+        events.add(e);
+        return e;
+    }
+
+    /**
+     * Returns the simulation's seeded random number generator
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Returns the number of timed events fired so far
+     */
+    public long getEventCount() {
+        return eventsFired;
+    }
+
+    /**
+     * Runs until no agent has anything to do and no events are left
+     */
+    public void run() {
+        while (step(Long.MAX_VALUE)) ;
+    }
+
+    /**
+     * Runs every event scheduled up to and including the given virtual time,
+     * then leaves the clock at that time
+     *
+     * @param time Virtual time in milliseconds
+     */
+    public void runUntil(long time) {
+        while (step(time)) ;
+        if (now < time) {
+            now = time;
+        }
+    }
+
+    /**
+     * Queues an agent's scheduler to run
+     *
+     * @return true if the agent was newly queued, false if it already was
+     */
+    boolean wake(Agent a) {
+        Actor actor = a.simulationActor;
+        if (actor.queued) {
+            return false;
+        }
+        actor.queued = true;
+        ready.add(actor);
+        return true;
+    }
+
+    /**
+     * Called on an agent's thread in place of s.acquire(): gives the baton
+     * back to the kernel until a permit has been released
+     *
+     * @param a Agent whose action is waiting
+     * @param s Semaphore to acquire
+     */
+    void acquire(Agent a, Semaphore s) throws InterruptedException {
+        Actor actor = a.simulationActor;
+        while (!s.tryAcquire()) {
+            actor.waitingOn = s;
+            blocked.add(actor);
+            kernelTurn.release();
+            actor.baton.acquire();
+        }
+    }
+
+    /**
+     * Resumes one agent, or else fires the next event due by the given time
+     *
+     * @return false if there was nothing to do
+     */
+    private boolean step(long until) {
+        //agents waiting inside an action whose permit has been released, oldest first
+        for (int i = 0; i < blocked.size(); i++) {
+            Actor actor = blocked.get(i);
+            if (actor.waitingOn.availablePermits() > 0) {
+                blocked.remove(i);
+                actor.waitingOn = null;
+                resume(actor);
+                return true;
+            }
+        }
+        for (int i = ready.size(); i > 0; i--) {
+            Actor actor = ready.poll();
+            if (actor.waitingOn != null) {
+                ready.add(actor); // still in the middle of its last pass
+                continue;
+            }
+            actor.queued = false;
+            resume(actor);
+            return true;
+        }
+        Event e = events.peek();
+        while (e != null && e.cancelled) {
+            events.poll();
+            e = events.peek();
+        }
+        if (e == null || e.time > until) {
+            return false;
+        }
+        events.poll();
+        now = e.time;
+        eventsFired++;
+        e.cancelled = true;
+        e.task.run();
+        return true;
+    }
+
+    /**
+     * Hands the baton to an agent and waits for it to come back
+     */
+    private void resume(Actor actor) {
+        actor.start();
+        actor.baton.release();
+        kernelTurn.acquireUninterruptibly();
+    }
+
+    /**
+     * The simulation's view of one agent: its thread and the baton it waits on
+     */
+    class Actor implements Runnable {
+        final Agent agent;
+        final Semaphore baton = new Semaphore(0);
+        boolean queued = false;
+        Semaphore waitingOn = null;
+        private Thread thread;
+
+        Actor(Agent agent) {
+            this.agent = agent;
+        }
+
+        void start() {
+            if (thread == null) {
+                thread = agent.getExecutionMode().newThread(agent.getName(), this);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        public void run() {
+            for (;;) {
+                baton.acquireUninterruptibly();
+                try {
+                    agent.runScheduler();
+                } catch (Exception e) {
+                    agent.print("Unexpected exception caught in simulated Agent:", e);
+                }
+                kernelTurn.release();
+            }
+        }
+    }
+
+    /**
+     * A task due at a virtual time.  Ties run in the order they were scheduled.
+     */
+    private static class Event implements Comparable<Event>, Timeout {
+        final long time;
+        final long seq;
+        final Runnable task;
+        boolean cancelled = false;
+
+        Event(long time, long seq, Runnable task) {
+            this.time = time;
+            this.seq = seq;
+            this.task = task;
+        }
+
+        public int compareTo(Event o) {
+            if (time != o.time) {
+                return time < o.time ? -1 : 1;
+            }
+            return seq < o.seq ? -1 : (seq == o.seq ? 0 : 1);
+        }
+
+        public boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+    }
+}
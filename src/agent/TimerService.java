@@ -0,0 +1,37 @@
+package agent;
+
+/**
+ * Source of time and delayed tasks for agents.  Agents schedule their timed
+ * work (cooking, eating, producing an order) through this instead of owning a
+ * java.util.Timer, so the same agent can run against the wall clock or a
+ * simulated one.
+ */
+public interface TimerService {
+
+    /**
+     * Returns the current time in milliseconds on this service's clock
+     */
+    public abstract long currentTimeMillis();
+
+    /**
+     * Runs a task once after the given delay
+     *
+     * @param task Code to run
+     * @param delay Delay in milliseconds
+     * @return a handle that can cancel the task before it runs
+     */
+    public abstract Timeout schedule(Runnable task, long delay);
+
+    /**
+     * Handle to a scheduled task
+     */
+    public interface Timeout {
+
+        /**
+         * Prevents the task from running if it has not run yet
+         *
+         * @return true if the task was cancelled, false if it already ran or was cancelled
+         */
+        public abstract boolean cancel();
+    }
+}
@@ -0,0 +1,251 @@
+package agent;
+
+/**
+ * Hierarchical timing wheel shared by every agent in the process.  One daemon
+ * thread drives all timed work (cooking, eating, producing orders, ...)
+ * instead of a java.util.Timer thread and heap per agent.
+ *
+ * Time is cut into ticks.  Timers due within the next 64 ticks sit in the
+ * slot for their tick on the first wheel; later ones sit on a coarser wheel
+ * and are cascaded down as their slot comes round.  Scheduling and cancelling
+ * only link or unlink a node in a slot's list, so both are O(1) however many
+ * timers are pending.  Tasks run on the wheel's thread and should be short
+ * (post a message, release a semaphore).
+ */
+public class TimingWheel implements TimerService {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Entry[][] wheels = new Entry[LEVELS][SLOTS];
+    private long nextTick = 0; // first tick not yet processed
+    private int pending = 0;
+    private Thread driver;
+
+    /**
+     * Constructor
+     *
+     * @param tickMillis Resolution of the wheel in milliseconds
+     */
+    public TimingWheel(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        tickNanos = tickMillis * 1000000L;
+        startNanos = System.nanoTime();
+        for (Entry[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Entry(0, null); // list head
+            }
+        }
+    }
+
+    /**
+     * Returns the process-wide wheel agents use unless given another TimerService
+     */
+    public static TimingWheel getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public synchronized Timeout schedule(Runnable task, long delay) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (pending == 0) {
+            nextTick = elapsed / tickNanos; // every slot is empty, so skip the idle ticks
+        }
+        //round up so the task never runs early
+        long deadline = (elapsed + Math.max(0, delay) * 1000000L + tickNanos - 1) / tickNanos;
+        Entry e = new Entry(Math.max(deadline, nextTick), task);
+        place(e);
+        pending++;
+        if (driver == null) {
+            driver = new Thread(new Runnable() {
+                public void run() {
+                    drive();
+                }
+            }, "TimingWheel");
+            driver.setDaemon(true);
+            driver.start();
+        } else if (pending == 1) {
+            notify();
+        }
+        return e;
+    }
+
+    /**
+     * Returns the number of timers scheduled but not yet run or cancelled
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    /**
+     * Links a timer into the slot for its deadline on the finest wheel that
+     * reaches it
+     */
+    private void place(Entry e) {
+        long delta = e.deadline - nextTick;
+        int level = 0;
+        long tick = e.deadline;
+        if (delta > MAX_SPAN) {
+            //too far out for the top wheel: park it at the far end and re-place on cascade
+            tick = nextTick + MAX_SPAN;
+            level = LEVELS - 1;
+        } else {
+            while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+                level++;
+            }
+        }
+        e.linkBefore(wheels[level][(int)(tick >>> (SLOT_BITS * level)) & MASK]);
+    }
+
+    /**
+     * Moves every timer in one slot of a coarse wheel down to finer wheels
+     *
+     * @return the slot index, so the caller knows whether the next wheel wrapped too
+     */
+    private int cascade(int level, long tick) {
+        int index = (int)(tick >>> (SLOT_BITS * level)) & MASK;
+        Entry head = wheels[level][index];
+        Entry e = head.next;
+        while (e != head) {
+            Entry next = e.next;
+            e.unlink();
+            place(e);
+            e = next;
+        }
+        return index;
+    }
+
+    /**
+     * Advances the wheel to the current tick and unlinks everything that fell due
+     *
+     * @return the due timers in deadline order chained through next, or null if none
+     */
+    private Entry advance(long now) {
+        Entry due = null;
+        Entry last = null;
+        while (nextTick <= now && pending > 0) {
+            int index = (int)nextTick & MASK;
+            if (index == 0) {
+                for (int level = 1; level < LEVELS && cascade(level, nextTick) == 0; level++) ;
+            }
+            Entry head = wheels[0][index];
+            while (head.next != head) {
+                Entry e = head.next;
+                e.unlink();
+                pending--;
+                e.next = null;
+                if (last == null) {
+                    due = e;
+                } else {
+                    last.next = e;
+                }
+                last = e;
+            }
+            nextTick++;
+        }
+        return due;
+    }
+
+    /**
+     * Body of the driver thread
+     */
+    private void drive() {
+        for (;;) {
+            Entry due;
+            synchronized (this) {
+                long now = currentTick();
+                while (pending == 0 || nextTick > now) {
+                    try {
+                        if (pending == 0) {
+                            wait();
+                        } else {
+                            long nanos = (nextTick * tickNanos) - (System.nanoTime() - startNanos);
+                            if (nanos > 0) {
+                                wait(nanos / 1000000L, (int)(nanos % 1000000L));
+                            }
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                    now = currentTick();
+                }
+                due = advance(now);
+            }
+            //run outside the lock so tasks may schedule more timers
+            while (due != null) {
+                Entry next = due.next;
+                due.next = null;
+                try {
+                    due.task.run();
+                } catch (Exception ex) {
+                    System.out.println("Unexpected exception caught in timer task: " + ex);
+                    ex.printStackTrace();
+                }
+                due = next;
+            }
+        }
+    }
+
+    /**
+     * A pending timer, linked into one slot's circular list.  Slot heads are
+     * entries with no task.
+     */
+    private class Entry implements Timeout {
+        final long deadline;
+        final Runnable task;
+        Entry prev = this;
+        Entry next = this;
+        boolean linked = false;
+
+        Entry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        void linkBefore(Entry head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+            linked = true;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+            linked = false;
+        }
+
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (!linked) {
+                    return false;
+                }
+                unlink();
+                pending--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Lazily creates the default wheel
+     */
+    private static class Holder {
+        static final TimingWheel DEFAULT = new TimingWheel(10); // 64 slots of 10 ms on the first wheel
+    }
+}
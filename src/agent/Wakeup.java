@@ -0,0 +1,49 @@
+package agent;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wakes up one waiting agent thread, holding at most one pending wake.
+ * Any number of signals sent while the agent is busy collapse into a single
+ * wake, so a burst of messages costs one extra scheduler pass instead of one
+ * pass per message.
+ */
+public class Wakeup {
+    private final Semaphore permit;
+    private final AtomicBoolean pending;
+
+    /**
+     * Constructor
+     *
+     * @param fair true to hand the permit out in FIFO order if more than one thread waits
+     * @param signalled true to start with a wake already pending
+     */
+    public Wakeup(boolean fair, boolean signalled) {
+        permit = new Semaphore(signalled ? 1 : 0, fair);
+        pending = new AtomicBoolean(signalled);
+    }
+
+    /**
+     * Requests a wake
+     *
+     * @return true if this produced a new wake, false if one was already pending
+     */
+    public boolean signal() {
+        if (pending.compareAndSet(false, true)) {
+            permit.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Blocks until a wake is pending, then consumes it.  Signals that arrive
+     * after this returns produce a new wake, so state changed after the
+     * caller starts looking is never missed.
+     */
+    public void await() throws InterruptedException {
+        permit.acquire();
+        pending.set(false);
+    }
+}
@@ -0,0 +1,149 @@
+package restaurant;
+
+/**
+ * Decides whether the host takes a walk-in party into the waitlist. A party
+ * is turned away if the line is already too long or the wait it would be
+ * quoted is too long, and asked to come back later if parties are arriving
+ * faster than a token bucket allows. A deferred party is given the next
+ * token the bucket will earn, so parties asked to come back return spaced
+ * out in the order they were turned away, and are let in on their return
+ * without queueing for a token again. By default every limit is off and
+ * everyone is admitted.
+ *
+ * Not thread-safe; the host only touches it from its own thread.
+ */
+public class AdmissionPolicy {
+	public enum Decision
+	{Admit, Defer, Reject};
+
+	private int maxQueue = Integer.MAX_VALUE;
+	private long maxWait = Long.MAX_VALUE;
+	//Token bucket: tokens added per millisecond (0 for no limit), most it holds, and what it
+	//holds now, below zero while tokens it has yet to earn are promised to deferred parties
+	private double refillRate = 0;
+	private double burst = 0;
+	private double tokens = 0;
+	private long lastRefill = 0;
+	private long retryDelay = 0;
+
+	private long admitted = 0;
+	private long deferred = 0;
+	private long rejected = 0;
+
+	/**
+	 * Sets the longest waitlist a new party may join
+	 *
+	 * @param maxQueue Number of parties already waiting at which new ones are turned away
+	 */
+	public void setMaxQueue(int maxQueue) {
+		this.maxQueue = maxQueue;
+	}
+
+	/**
+	 * Sets the longest wait a new party may be quoted
+	 *
+	 * @param maxWait Wait in milliseconds beyond which new parties are turned away
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Limits how fast parties are admitted; those over the limit are asked
+	 * to come back when the bucket next has a token
+	 *
+	 * @param perMinute Parties admitted per minute over the long run, or 0 for no limit
+	 * @param burst Parties that may be admitted at once after a quiet spell
+	 */
+	public void setArrivalRate(double perMinute, int burst) {
+		this.refillRate = perMinute / agent.Constants.MINUTE;
+		this.burst = Math.max(1, burst);
+		this.tokens = this.burst;
+	}
+
+	/**
+	 * Decides what to do with a walk-in party
+	 *
+	 * @param queueLength Number of parties already waiting
+	 * @param predictedWait Wait the party would be quoted, in milliseconds
+	 * @param now Current time on the host's TimerService clock
+	 * @return Admit, Defer or Reject
+	 */
+	public Decision admit(int queueLength, long predictedWait, long now) {
+		if (queueLength >= maxQueue || predictedWait > maxWait) {
+			rejected++;
+			return Decision.Reject;
+		}
+		if (refillRate > 0) {
+			refill(now);
+			tokens--;
+			if (tokens < 0) {
+				retryDelay = (long)Math.ceil(-tokens / refillRate);
+				deferred++;
+				return Decision.Defer;
+			}
+		}
+		admitted++;
+		return Decision.Admit;
+	}
+
+	/**
+	 * Decides what to do with a party coming back after being deferred; it
+	 * already holds a token, so only the queue and wait limits apply
+	 *
+	 * @param queueLength Number of parties already waiting
+	 * @param predictedWait Wait the party would be quoted, in milliseconds
+	 * @return Admit or Reject
+	 */
+	public Decision readmit(int queueLength, long predictedWait) {
+		if (queueLength >= maxQueue || predictedWait > maxWait) {
+			rejected++;
+			return Decision.Reject;
+		}
+		admitted++;
+		return Decision.Admit;
+	}
+
+	/**
+	 * Gives back the token promised to a deferred party that is not coming back
+	 */
+	public void cancelDeferral() {
+		tokens = Math.min(burst, tokens + 1);
+	}
+
+	/**
+	 * Returns how long the party deferred last should stay away: until the
+	 * bucket has earned the token promised to it
+	 */
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	private void refill(long now) {
+		if (now > lastRefill) {
+			tokens = Math.min(burst, tokens + (now - lastRefill) * refillRate);
+			lastRefill = now;
+		}
+	}
+
+	/**
+	 * Returns the number of parties admitted
+	 */
+	public long getAdmittedCount() {
+		return admitted;
+	}
+
+	/**
+	 * Returns the number of times a party was asked to come back later
+	 */
+	public long getDeferredCount() {
+		return deferred;
+	}
+
+	/**
+	 * Returns the number of parties turned away
+	 */
+	public long getRejectedCount() {
+		return rejected;
+	}
+}
@@ -5,7 +5,6 @@ import restaurant.interfaces.Customer;
 import restaurant.interfaces.Waiter;
 import restaurant.interfaces.Cashier;
 import restaurant.interfaces.Market;
-import restaurant.test.mock.LoggedEvent;
 
 import java.util.*;
 
@@ -65,7 +64,7 @@ public class CashierAgent extends Agent implements Cashier {
 	 * @param choice Name of Customer's food choice
 	 */
 	public void msgProduceCheck(Waiter w, Customer c, String choice) {
-		log.add(new LoggedEvent("Received msgProduceCheck"));
+		log.add("Received msgProduceCheck");
 		checks.add(new Check(c, w, choice, prices.get(choice)+c.getCharge(), CheckState.Created));
 		stateChanged();
 	}
@@ -77,16 +76,20 @@ public class CashierAgent extends Agent implements Cashier {
 	 * @param cash Amount of cash paid by Customer
 	 */
 	public void msgPayment(Customer c, int cash) {
-		log.add(new LoggedEvent("Received msgPayment"));
+		log.add("Received msgPayment");
+		boolean paid = false;
 		synchronized(checks) {
 			for (Check check : checks) {
 				if (check.cust == c & check.state == CheckState.GivenToWaiter) {
 					check.setPayment(cash);
 					check.setState(CheckState.Paid);
-					stateChanged();
+					paid = true;
 				}
 			}
 		}
+		if (paid) {
+			stateChanged();
+		}
 	}
 	
 	/**
@@ -96,7 +99,7 @@ public class CashierAgent extends Agent implements Cashier {
 	 * @param market Reference to Market
 	 */
 	public void msgHereIsBill(int bill, Market market) {
-		log.add(new LoggedEvent("Received msgHereIsBill"));
+		log.add("Received msgHereIsBill");
 		bills.add(new Bill(market, bill));
 		stateChanged();
 	}
@@ -141,10 +144,14 @@ public class CashierAgent extends Agent implements Cashier {
 	 * 
 	 * @param c Reference to Check
 	 */
-	private void giveToWaiter(Check c) {
-		print(c.waiter + ", here is the check for " + c.cust);
+	private void giveToWaiter(final Check c) {
+		print("{}, here is the check for {}", c.waiter, c.cust);
 		c.setState(CheckState.GivenToWaiter);
-		c.waiter.msgHereIsCheck(c.cust, c.charge);
+		send(new Runnable() {
+			public void run() {
+				c.waiter.msgHereIsCheck(c.cust, c.charge);
+			}
+		});
 	}
 	
 	/**
@@ -152,17 +159,21 @@ public class CashierAgent extends Agent implements Cashier {
 	 * 
 	 * @param c Reference to Check
 	 */
-	private void giveCustomerChange(Check c) {
-		int change = c.payment - c.charge;
+	private void giveCustomerChange(final Check c) {
+		final int change = c.payment - c.charge;
 		if (change >= 0) {
-			print(c.cust + ", here is your change of $" + change);
+			print("{}, here is your change of ${}", c.cust, change);
 			cash += c.charge;
 		} else {
 			print(c.cust + ", thank you for eating at our restaurant. Please pay $" + -change + " next time you rotten cheapskate.");
 			cash += c.payment;
 		}
 		c.setState(CheckState.Done);
-		c.cust.msgChange(change);
+		send(new Runnable() {
+			public void run() {
+				c.cust.msgChange(change);
+			}
+		});
 	}
 	
 	/**
@@ -170,10 +181,14 @@ public class CashierAgent extends Agent implements Cashier {
 	 * 
 	 * @param bill Reference to Bill
 	 */
-	private void payBill(Bill bill) {
+	private void payBill(final Bill bill) {
 		cash -= bill.charge;
-		print("Paying bill. Cash = $" + cash);
-		bill.market.msgPayment(bill.charge);
+		print("Paying bill. Cash = ${}", cash);
+		send(new Runnable() {
+			public void run() {
+				bill.market.msgPayment(bill.charge);
+			}
+		});
 		bills.remove(bill);
 	}
 
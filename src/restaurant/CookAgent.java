@@ -10,14 +10,15 @@ import restaurant.gui.CookGui;
  */
 
 public class CookAgent extends Agent {
+	//Only touched on the cook's own thread; messages are posted to its mailbox
 	public List<Order> orders
 	= new ArrayList<Order>();
 	public List<MyMarket> markets = new ArrayList<MyMarket>();
 	public List<ItemOrder> itemOrders = new ArrayList<ItemOrder>();
 
-	private HostAgent host;
+	private FoodAvailability availability = new FoodAvailability();
+	private Kitchen<Order> kitchen = new Kitchen<Order>();
 	private String name;
-	private Timer timer = new Timer();
 	private boolean orderedItems;
 	private CookGui cookGui;
 	
@@ -29,7 +30,7 @@ public class CookAgent extends Agent {
 	Map<String, Food> foods = new HashMap<String, Food>();
 	
 	public enum OrderState
-	{Pending, Cooking, Done, Finished};
+	{Pending, Queued, Cooking, Done, Finished};
 	public enum FoodState
 	{Enough, MustBeOrdered, Ordered, WaitingForOrder, ReceivedOrder};
 
@@ -47,6 +48,15 @@ public class CookAgent extends Agent {
 		foods.put("chicken", chicken);
 		foods.put("salad", salad);
 		foods.put("pizza", pizza);
+		
+		kitchen.addStation("grill", 2);
+		kitchen.addStation("fryer", 2);
+		kitchen.addStation("salad", 1);
+		kitchen.addStation("oven", 2);
+		kitchen.assign("steak", "grill");
+		kitchen.assign("chicken", "fryer");
+		kitchen.assign("salad", "salad");
+		kitchen.assign("pizza", "oven");
 	}
 	
 	/**
@@ -57,12 +67,19 @@ public class CookAgent extends Agent {
 	}
 	
 	/**
-	 * Hack to establish connection to HostAgent.
-	 * 
-	 * @param h Reference to HostAgent
+	 * Returns the channel waiters subscribe to for word that a sold-out food
+	 * is back in stock
 	 */
-	public void setHost(HostAgent h) {
-		host = h;
+	public FoodAvailability getFoodAvailability() {
+		return availability;
+	}
+	
+	/**
+	 * Returns the cook's stations. Only change them before the cook's
+	 * thread starts; after that, read them once the cook is idle.
+	 */
+	public Kitchen<?> getKitchen() {
+		return kitchen;
 	}
 	
 	/**
@@ -92,9 +109,12 @@ public class CookAgent extends Agent {
 	 * @param choice String representing the customer's choice
 	 * @param table Number of the table assigned to the customer
 	 */
-	public void msgHereIsOrder(WaiterAgent waiter, String choice, int table) {
-		orders.add(new Order(waiter, choice, table, OrderState.Pending));
-		stateChanged();
+	public void msgHereIsOrder(final WaiterAgent waiter, final String choice, final int table) {
+		post(new Runnable() {
+			public void run() {
+				orders.add(new Order(waiter, choice, table, OrderState.Pending));
+			}
+		});
 	}
 	
 	/**
@@ -103,15 +123,19 @@ public class CookAgent extends Agent {
 	 * @param orders List of ItemOrders that can be fulfilled
 	 */
 	public void msgHereIsWhatICanFulfill(List<ItemOrder> orders) {
-		for (Food f : foods.values()) {
-			if (f.state == FoodState.Ordered) {
-				f.state = FoodState.MustBeOrdered;
+		final List<ItemOrder> fulfilled = new ArrayList<ItemOrder>(orders);
+		post(new Runnable() {
+			public void run() {
+				for (Food f : foods.values()) {
+					if (f.state == FoodState.Ordered) {
+						f.state = FoodState.MustBeOrdered;
+					}
+				}
+				for (ItemOrder o : fulfilled) {
+					foods.get(o.getFood()).setState(FoodState.WaitingForOrder);
+				}
 			}
-		}
-		for (ItemOrder o : orders) {
-			foods.get(o.getFood()).setState(FoodState.WaitingForOrder);
-		}
-		stateChanged();
+		});
 	}
 	
 	/**
@@ -120,54 +144,63 @@ public class CookAgent extends Agent {
 	 * @param orders List of ItemOrders that have arrived
 	 */
 	public void msgOrderDelivered(List<ItemOrder> orders) {
-		List<ItemOrder> temp = new ArrayList<ItemOrder>();
-		for (ItemOrder o : orders) {
-			temp.add(o);
-		}
-		for (ItemOrder o : temp) {
-			foods.get(o.getFood()).amount += o.getAmount();
-			print(o.getFood() + " inventory: " + foods.get(o.getFood()).amount);
-			foods.get(o.getFood()).state = FoodState.ReceivedOrder;
-		}
-		stateChanged();
+		final List<ItemOrder> delivered = new ArrayList<ItemOrder>(orders);
+		post(new Runnable() {
+			public void run() {
+				for (ItemOrder o : delivered) {
+					foods.get(o.getFood()).amount += o.getAmount();
+					print("{} inventory: {}", o.getFood(), foods.get(o.getFood()).amount);
+					foods.get(o.getFood()).state = FoodState.ReceivedOrder;
+				}
+			}
+		});
 	}
 
 	/**
 	 * Scheduler.  Determine what action is called for, and do it.
 	 */
 	public boolean pickAndExecuteAnAction() {
-		try {
-			if (orderedItems == false) {
-				orderedItems = true;
-				orderFoodFromMarket();
+		if (orderedItems == false) {
+			orderedItems = true;
+			rule("orderFoodFromMarket");
+			orderFoodFromMarket();
+			return true;
+		}
+		for (Food food : foods.values()) {
+			if (food.getState() == FoodState.ReceivedOrder) {
+				rule("addFood");
+				addFood(food);
 				return true;
 			}
-			for (Food food : foods.values()) {
-				if (food.getState() == FoodState.ReceivedOrder) {
-					addFood(food);
-					return true;
-				}
+		}
+		for (Food food : foods.values()) {
+			if (food.getState() == FoodState.MustBeOrdered) {
+				rule("orderFoodFromMarket");
+				orderFoodFromMarket();
+				return true;
 			}
-			for (Food food : foods.values()) {
-				if (food.getState() == FoodState.MustBeOrdered) {
-					orderFoodFromMarket();
-					return true;
-				}
+		}
+		for (Order order : orders) {
+			if (order.getState() == OrderState.Done) {
+				rule("plateIt");
+				plateIt(order);
+				return true;
 			}
-			for (Order order : orders) {
-				if (order.getState() == OrderState.Done) {
-					plateIt(order);
-					return true;
-				}
+		}
+		for (Kitchen.Station<Order> station : kitchen.getStations()) {
+			Order order = station.next(getTimerService().currentTimeMillis());
+			if (order != null) {
+				rule("startCooking");
+				startCooking(order);
+				return true;
 			}
-			for (Order order : orders) {
-				if (order.getState() == OrderState.Pending) {
-					cookIt(order);
-					return true;
-				}
+		}
+		for (Order order : orders) {
+			if (order.getState() == OrderState.Pending) {
+				rule("cookIt");
+				cookIt(order);
+				return true;
 			}
-		} catch (ConcurrentModificationException e) {
-			return false;
 		}
 
 		return false;
@@ -179,32 +212,56 @@ public class CookAgent extends Agent {
 	// Actions
 
 	/**
-	 * Starts cooking an order. If inventory of that specific food is empty, notify the waiter.
+	 * Takes an order into the kitchen, cooking it if its station has a free
+	 * slot and queueing it there if not. If inventory of that specific food
+	 * is empty, notify the waiter.
 	 * 
 	 * @param o Reference to Order
 	 */
 	private void cookIt(Order o) {
 		if (foods.get(o.choice).getAmount() == 0) {
-			print("We're out of " + o.choice);
+			print("We're out of {}", o.choice);
+			availability.soldOut(o.choice);
 			o.waiter.msgOutOfFood(o.choice, o.table);
 			o.setState(OrderState.Finished);
 			return;
 		}
+		o.station = kitchen.stationFor(o.choice);
+		if (o.station == null || o.station.start(o, getTimerService().currentTimeMillis())) {
+			startCooking(o);
+		} else {
+			Do("{} waits for the {}", o.choice, o.station);
+			o.setState(OrderState.Queued);
+		}
+		foods.get(o.choice).setAmount(foods.get(o.choice).getAmount()-1);
+		print("{} inventory: {}", foods.get(o.choice).type, foods.get(o.choice).amount);
+		if (foods.get(o.choice).amount <= foods.get(o.choice).low && foods.get(o.choice).state == FoodState.Enough) {
+			foods.get(o.choice).setState(FoodState.MustBeOrdered);
+		}
+	}
+	
+	/**
+	 * Puts an order on the stove; its station slot, if any, is already taken
+	 * 
+	 * @param o Reference to Order
+	 */
+	private void startCooking(Order o) {
 		o.setState(OrderState.Cooking);
 		cookGui.DoCookFood(o.choice);
-		timer.schedule(new CookingTimerTask(o) {
+		getTimerService().schedule(new CookingTimerTask(o) {
 			@Override
 			public void run() {
-				order.setState(OrderState.Done);
-				stateChanged();
+				post(new Runnable() {
+					public void run() {
+						order.setState(OrderState.Done);
+						if (order.station != null) {
+							order.station.finish(getTimerService().currentTimeMillis());
+						}
+					}
+				});
 			}
 		},
 		foods.get(o.choice).getCookingTime() * 1000);
-		foods.get(o.choice).setAmount(foods.get(o.choice).getAmount()-1);
-		print(foods.get(o.choice).type + " inventory: " + foods.get(o.choice).amount);
-		if (foods.get(o.choice).amount <= foods.get(o.choice).low && foods.get(o.choice).state == FoodState.Enough) {
-			foods.get(o.choice).setState(FoodState.MustBeOrdered);
-		}
 	}
 	
 	/**
@@ -213,7 +270,7 @@ public class CookAgent extends Agent {
 	 * @param o Reference to Order
 	 */
 	private void plateIt(Order o) {
-		print(o.choice + " is done");
+		print("{} is done", o.choice);
 		cookGui.DoPlateFood(o.choice);
 		o.getWaiter().msgOrderDone(o.getChoice(), o.getTable());
 		o.setState(OrderState.Finished);
@@ -237,9 +294,9 @@ public class CookAgent extends Agent {
 				}
 			}
 		}
-		print("I am ordering from " + markets.get(index).market.getName());
+		print("I am ordering from {}", markets.get(index).market.getName());
 		for (ItemOrder io : itemOrders) {
-			print("I need " + io.getAmount() + " " + io.getFood() + "s");
+			print("I need {} {}s", io.getAmount(), io.getFood());
 		}
 		markets.get(index).market.msgHereIsOrder(itemOrders);
 		markets.get(index).incrementOrderedFrom();
@@ -247,7 +304,7 @@ public class CookAgent extends Agent {
 	}
 	
 	/**
-	 * Notifies the host that a food order has been received
+	 * Tells the waiters waiting on a food that an order of it has been received
 	 * 
 	 * @param f Reference to Food
 	 */
@@ -255,7 +312,7 @@ public class CookAgent extends Agent {
 		for (Food food : foods.values()) {
 			if (food == f) {
 				food.setState(FoodState.Enough);
-				host.msgReceivedOrder(food.type);
+				availability.publish(food.type);
 			}
 		}
 	}
@@ -288,6 +345,8 @@ public class CookAgent extends Agent {
 		int table;
 		private OrderState state;
 		String choice;
+		//Station cooking the order, or null if its food has none
+		Kitchen.Station<Order> station;
 
 		Order(WaiterAgent w, String c, int t, OrderState s) {
 			waiter = w;
@@ -359,16 +418,14 @@ public class CookAgent extends Agent {
 	}
 	
 	/**
-	 * TimerTask necessary for the order timer
+	 * Task run by the order timer
 	 */
-	private class CookingTimerTask extends TimerTask {
+	private abstract class CookingTimerTask implements Runnable {
 		Order order;
 		
 		CookingTimerTask(Order o) {
 			order = o;
 		}
-		
-		public void run() {};
 	}
 }
 
@@ -2,10 +2,9 @@ package restaurant;
 
 import restaurant.gui.CustomerGui;
 import restaurant.interfaces.Customer;
+import restaurant.interfaces.Host;
 import agent.Agent;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
 
 /**
@@ -14,7 +13,9 @@ import java.util.concurrent.Semaphore;
 public class CustomerAgent extends Agent implements Customer {
 	private String name;
 	private int hungerLevel = 1;
-	private Timer timer = new Timer();
+	private final int partySize;
+	private long patience = Long.MAX_VALUE; //longest quoted wait the customer will stay for
+	private long retryDelay; //how long the host asked him to stay away
 	private CustomerGui customerGui;
 	private Menu menu;
 	private String choice;
@@ -26,7 +27,7 @@ public class CustomerAgent extends Agent implements Customer {
 	private int charge;
 	
 	// agent correspondents
-	private HostAgent host;
+	private Host host;
 	private WaiterAgent waiter;
 	private CashierAgent cashier;
 
@@ -35,7 +36,7 @@ public class CustomerAgent extends Agent implements Customer {
 	private AgentState state = AgentState.DoingNothing;//The start state
 
 	public enum AgentEvent 
-	{none, gotHungry, arrivedAtRestaurant, gotImpatient, followWaiter, seated, looksAtMenuAndCries, toldWaiter, madeChoice, order, receivedFood, doneEating, receivedCheck, receivedChange, doneLeaving};
+	{none, gotHungry, arrivedAtRestaurant, gotImpatient, turnedAway, toldToComeBack, followWaiter, seated, looksAtMenuAndCries, toldWaiter, madeChoice, order, receivedFood, doneEating, receivedCheck, receivedChange, doneLeaving};
 	AgentEvent event = AgentEvent.none;
 
 	/**
@@ -44,8 +45,22 @@ public class CustomerAgent extends Agent implements Customer {
 	 * @param name Agent name for messages
 	 */
 	public CustomerAgent(String name){
+		this(name, 1);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name Agent name for messages
+	 * @param partySize Number of people the customer asks a table for, themselves included
+	 */
+	public CustomerAgent(String name, int partySize){
 		super();
+		if (partySize <= 0) {
+			throw new IllegalArgumentException("partySize must be positive: " + partySize);
+		}
 		this.name = name;
+		this.partySize = partySize;
 		
 		cash = 30;
 		if (name.equals("cheapskate") || name.equals("poor")) {
@@ -54,15 +69,19 @@ public class CustomerAgent extends Agent implements Customer {
 		if (name.equals("enoughforsalad")) {
 			cash = 7;
 		}
+		if (name.equals("impatient")) {
+			patience = 0;
+		}
 		charge = 0;
 	}
 
 	/**
-	 * Hack to establish connection to HostAgent.
+	 * Hack to establish connection to HostAgent, or to the FrontDoor of a
+	 * restaurant in sections.
 	 * 
-	 * @param h Reference to HostAgent
+	 * @param h Reference to Host
 	 */
-	public void setHost(HostAgent host) {
+	public void setHost(Host host) {
 		this.host = host;
 	}
 	
@@ -108,6 +127,23 @@ public class CustomerAgent extends Agent implements Customer {
 		return name;
 	}
 
+	/**
+	 * Sets the longest quoted wait the customer will stay for; a customer
+	 * named "impatient" starts at 0, everyone else waits however long it takes
+	 *
+	 * @param patience Longest acceptable wait, in milliseconds
+	 */
+	public void setPatience(long patience) {
+		this.patience = patience;
+	}
+
+	/**
+	 * Returns the number of people the customer asks a table for
+	 */
+	public int getPartySize() {
+		return partySize;
+	}
+
 	/**
 	 * Sets the CustomerAgent's hunger level
 	 * 
@@ -152,10 +188,13 @@ public class CustomerAgent extends Agent implements Customer {
 	}
 	
 	/**
-	 * If CustomerAgent's name is "impatient" (hack), makes his event "gotImpatient". Otherwise he waits.
+	 * Tells customer the restaurant is full. If the quoted wait is longer
+	 * than the customer's patience, makes his event "gotImpatient". Otherwise he waits.
+	 * 
+	 * @param estimatedWait Wait the host expects, in milliseconds
 	 */
-	public void msgRestaurantIsFull() {
-		if (name.equals("impatient")) {
+	public void msgRestaurantIsFull(long estimatedWait) {
+		if (estimatedWait > patience) {
 			event = AgentEvent.gotImpatient;
 		} else {
 			Do("I'll wait for a table to open");
@@ -163,6 +202,26 @@ public class CustomerAgent extends Agent implements Customer {
 		stateChanged();
 	}
 
+	/**
+	 * Tells customer the host will not take his party tonight
+	 */
+	public void msgNoRoom() {
+		event = AgentEvent.turnedAway;
+		stateChanged();
+	}
+
+	/**
+	 * Tells customer to come back after a while. If that is longer than his
+	 * patience he gives up, tells the host and leaves.
+	 * 
+	 * @param delay How long to stay away, in milliseconds
+	 */
+	public void msgComeBackLater(long delay) {
+		retryDelay = delay;
+		event = delay > patience ? AgentEvent.gotImpatient : AgentEvent.toldToComeBack;
+		stateChanged();
+	}
+
 	/**
 	 * Tells customer to follow the waiter to the specified table
 	 * 
@@ -315,6 +374,16 @@ public class CustomerAgent extends Agent implements Customer {
 			leaveAndNotifyHost();
 			return true;
 		}
+		if (state == AgentState.WaitingInRestaurant && event == AgentEvent.turnedAway){
+			state = AgentState.Leaving;
+			leaveRestaurant();
+			return true;
+		}
+		if (state == AgentState.WaitingInRestaurant && event == AgentEvent.toldToComeBack){
+			state = AgentState.GoingToRestaurant;
+			comeBackLater();
+			return true;
+		}
 		if (state == AgentState.BeingSeated && event == AgentEvent.looksAtMenuAndCries){
 			state = AgentState.WantToLeave;
 			tellWaiter();
@@ -327,7 +396,7 @@ public class CustomerAgent extends Agent implements Customer {
 		}
 		if (state == AgentState.BeingSeated && event == AgentEvent.seated){
 			state = AgentState.Seated;
-			timer.schedule(new TimerTask() {
+			getTimerService().schedule(new Runnable() {
 				public void run() {
 					event = AgentEvent.madeChoice;
 					stateChanged();
@@ -383,8 +452,8 @@ public class CustomerAgent extends Agent implements Customer {
 	 * Tells the host that he wants to be seated
 	 */
 	private void requestSeat() {
-		Do("Table for 1");
-		host.msgIWantFood(this);
+		Do("Table for {}", partySize);
+		host.msgIWantFood(this, partySize);
 	}
 	
 	/**
@@ -396,6 +465,20 @@ public class CustomerAgent extends Agent implements Customer {
 		host.msgImLeaving(this);
 	}
 
+	/**
+	 * Waits as long as the host asked, then arrives at the restaurant again
+	 */
+	private void comeBackLater() {
+		Do("I'll come back later");
+		getTimerService().schedule(new Runnable() {
+			public void run() {
+				event = AgentEvent.arrivedAtRestaurant;
+				stateChanged();
+			}
+		},
+		retryDelay);
+	}
+
 	/**
 	 * Tells the customer's GUI to go to the table
 	 */
@@ -437,13 +520,13 @@ public class CustomerAgent extends Agent implements Customer {
 			choice = name;
 		} else {
 			do {
-				choice = menu.randomItem();
+				choice = menu.randomItem(random());
 			} while (menu.getPrice(choice) > cash && !name.equals("cheapskate"));
 		}
-		print("I would like to order " + choice);
+		print("I would like to order {}", choice);
 		customerGui.order();
 		try {
-			doneOrdering.acquire();
+			acquire(doneOrdering);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -456,9 +539,9 @@ public class CustomerAgent extends Agent implements Customer {
 	 */
 	private void EatFood() {
 		Do("Eating Food");
-		timer.schedule(new TimerTask() {
+		getTimerService().schedule(new Runnable() {
 			public void run() {
-				print("Done eating " + choice);
+				print("Done eating {}", choice);
 				event = AgentEvent.doneEating;
 				stateChanged();
 			}
@@ -481,7 +564,7 @@ public class CustomerAgent extends Agent implements Customer {
 		Do("Going to cashier");
 		customerGui.DoGoToCashier();
 		try {
-			atCashier.acquire();
+			acquire(atCashier);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -490,7 +573,7 @@ public class CustomerAgent extends Agent implements Customer {
 		if (cash < payment) {
 			payment = cash;
 		}
-		Do("Paying $" + payment);
+		Do("Paying ${}", payment);
 		cashier.msgPayment(this, payment);
 		cash -= payment;
 	}
@@ -0,0 +1,282 @@
+package restaurant;
+
+import java.util.*;
+
+/**
+ * Things on the restaurant floor, such as free tables or available
+ * waiters, kept in the order they were added and bucketed by square cells
+ * of the floor, so the ones nearest a point can be found without weighing
+ * up all of them. Adding and removing are O(1).
+ *
+ * Finding the k nearest searches outward from the point's cell a ring of
+ * cells at a time, which is quick where things are spread all over the
+ * floor. Where there are few of them far apart most of those cells are
+ * empty, so once the search has looked at as many cells as there are
+ * things it stops and picks the k nearest from all of them instead. Either
+ * way it costs O(min(c, n) + k) for n things, where c is the number of
+ * cells out to the ring holding the k-th nearest.
+ *
+ * Not thread-safe; the host only touches it from its own thread.
+ */
+public class FloorGrid<T> implements Iterable<T> {
+	private final int cellSize;
+	//Where each thing is, in the order they were added
+	private final Map<T, Spot<T>> items = new LinkedHashMap<T, Spot<T>>();
+	//First spot in each cell, by row from (originX, originY), grown to take
+	//in any cell added to; each cell's spots are linked through Spot.next
+	private List<Spot<T>> cells = new ArrayList<Spot<T>>(0);
+	private int originX = 0;
+	private int originY = 0;
+	private int width = 0;
+	private int height = 0;
+	//Cells anything has been added to lie within these, inclusive
+	private int minCellX = Integer.MAX_VALUE;
+	private int maxCellX = Integer.MIN_VALUE;
+	private int minCellY = Integer.MAX_VALUE;
+	private int maxCellY = Integer.MIN_VALUE;
+	//Found so far by the search running now
+	private final List<T> found = new ArrayList<T>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param cellSize Width and height of each cell, in pixels
+	 */
+	public FloorGrid(int cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+		}
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Adds something at a point on the floor
+	 *
+	 * @param item What to add; nothing happens if it is already in the grid
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 */
+	public void add(T item, int x, int y) {
+		if (items.containsKey(item)) {
+			return;
+		}
+		int cx = Math.floorDiv(x, cellSize);
+		int cy = Math.floorDiv(y, cellSize);
+		if (cx < originX || cx >= originX + width || cy < originY || cy >= originY + height) {
+			grow(cx, cy);
+		}
+		Spot<T> s = new Spot<T>(item, x, y, (cy - originY) * width + cx - originX);
+		s.next = cells.get(s.cell);
+		if (s.next != null) {
+			s.next.prev = s;
+		}
+		cells.set(s.cell, s);
+		items.put(item, s);
+		minCellX = Math.min(minCellX, cx);
+		maxCellX = Math.max(maxCellX, cx);
+		minCellY = Math.min(minCellY, cy);
+		maxCellY = Math.max(maxCellY, cy);
+	}
+
+	/**
+	 * Removes something
+	 *
+	 * @param item What to remove
+	 * @return true if it was in the grid, false otherwise
+	 */
+	public boolean remove(T item) {
+		Spot<T> s = items.remove(item);
+		if (s == null) {
+			return false;
+		}
+		if (s.prev == null) {
+			cells.set(s.cell, s.next);
+		} else {
+			s.prev.next = s.next;
+		}
+		if (s.next != null) {
+			s.next.prev = s.prev;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whatever has been in the grid longest, or null if it is empty
+	 */
+	public T first() {
+		return items.isEmpty() ? null : items.keySet().iterator().next();
+	}
+
+	/**
+	 * Returns the number of things in the grid
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Checks if the grid is empty
+	 *
+	 * @return true if nothing is in it, false otherwise
+	 */
+	public boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	/**
+	 * Returns an iterator over everything in the grid, longest there first.
+	 * It does not support remove.
+	 */
+	public Iterator<T> iterator() {
+		return Collections.unmodifiableSet(items.keySet()).iterator();
+	}
+
+	/**
+	 * Adds to a collection at least k of the things nearest a point, or
+	 * everything if there are no more than k: everything in the cells out
+	 * to the first ring of cells around the point's cell that brings the
+	 * count to k, or, if that means looking at more cells than there are
+	 * things, the k nearest of them
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @param k Number of things wanted
+	 * @param into Collection to add them to
+	 */
+	public void nearest(int x, int y, int k, Collection<? super T> into) {
+		if (items.size() <= k) {
+			into.addAll(items.keySet());
+			return;
+		}
+		int cx = Math.floorDiv(x, cellSize);
+		int cy = Math.floorDiv(y, cellSize);
+		int rings = Math.max(Math.max(cx - minCellX, maxCellX - cx), Math.max(cy - minCellY, maxCellY - cy));
+		int budget = items.size();
+		found.clear();
+		for (int r = 0; r <= rings && found.size() < k; r++) {
+			for (int y1 = Math.max(cy - r, minCellY); y1 <= Math.min(cy + r, maxCellY); y1++) {
+				if (y1 == cy - r || y1 == cy + r) {
+					//the top and bottom rows of the ring are whole
+					for (int x1 = Math.max(cx - r, minCellX); x1 <= Math.min(cx + r, maxCellX); x1++) {
+						take(x1, y1);
+						budget--;
+					}
+				} else {
+					//the rows between are just their two ends
+					if (cx - r >= minCellX && cx - r <= maxCellX) {
+						take(cx - r, y1);
+						budget--;
+					}
+					if (cx + r <= maxCellX && cx + r >= minCellX) {
+						take(cx + r, y1);
+						budget--;
+					}
+				}
+			}
+			if (budget < 0 && found.size() < k) {
+				scan(x, y, k);
+				break;
+			}
+		}
+		into.addAll(found);
+		found.clear();
+	}
+
+	/**
+	 * Adds everything in a cell to found
+	 */
+	private void take(int cx, int cy) {
+		for (Spot<T> s = cells.get((cy - originY) * width + cx - originX); s != null; s = s.next) {
+			found.add(s.item);
+		}
+	}
+
+	/**
+	 * Replaces found with the k things nearest a point, looking at every one
+	 */
+	private void scan(int x, int y, int k) {
+		List<Spot<T>> best = new ArrayList<Spot<T>>(k + 1);
+		int[] distances = new int[k + 1];
+		for (Spot<T> s : items.values()) {
+			int d = FloorPlan.distance(x, y, s.x, s.y);
+			int ix = best.size();
+			if (ix == k && d >= distances[k - 1]) {
+				continue;
+			}
+			//insertion sort into the k nearest so far
+			while (ix > 0 && distances[ix - 1] > d) {
+				distances[ix] = distances[ix - 1];
+				ix--;
+			}
+			distances[ix] = d;
+			best.add(ix, s);
+			if (best.size() > k) {
+				best.remove(k);
+			}
+		}
+		found.clear();
+		for (Spot<T> s : best) {
+			found.add(s.item);
+		}
+	}
+
+	/**
+	 * Makes room for a cell outside the ones there is room for, at least
+	 * doubling the room in the direction it lies so that adding things one
+	 * row or column further out at a time costs O(1) each on average
+	 */
+	private void grow(int cx, int cy) {
+		int left = originX;
+		int right = originX + width;
+		int top = originY;
+		int bottom = originY + height;
+		if (width == 0) {
+			left = cx;
+			right = cx + 1;
+			top = cy;
+			bottom = cy + 1;
+		}
+		if (cx < left) {
+			left = Math.min(cx, left - (right - left));
+		} else if (cx >= right) {
+			right = Math.max(cx + 1, right + (right - left));
+		}
+		if (cy < top) {
+			top = Math.min(cy, top - (bottom - top));
+		} else if (cy >= bottom) {
+			bottom = Math.max(cy + 1, bottom + (bottom - top));
+		}
+		List<Spot<T>> grown = new ArrayList<Spot<T>>(Collections.<Spot<T>>nCopies((right - left) * (bottom - top), null));
+		for (Spot<T> s : items.values()) {
+			s.cell = (s.cell / width + originY - top) * (right - left) + s.cell % width + originX - left;
+		}
+		for (int ix = 0; ix < cells.size(); ix++) {
+			Spot<T> head = cells.get(ix);
+			if (head != null) {
+				grown.set(head.cell, head);
+			}
+		}
+		cells = grown;
+		originX = left;
+		originY = top;
+		width = right - left;
+		height = bottom - top;
+	}
+
+	/**
+	 * Where one thing is, linked to the others in its cell
+	 */
+	private static class Spot<T> {
+		final T item;
+		final int x, y;
+		int cell; //index in cells
+		Spot<T> prev, next;
+
+		Spot(T item, int x, int y, int cell) {
+			this.item = item;
+			this.x = x;
+			this.y = y;
+			this.cell = cell;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package restaurant;
+
+/**
+ * Where things are on the restaurant floor, in the animation's pixels: the
+ * tables, the entrance where waiters pick customers up, the kitchen, and
+ * each waiter's home position. The default layout matches the GUI for its
+ * three tables and carries on in rows for more.
+ *
+ * Distances are in pixels walked. The animation moves one pixel along
+ * each axis per step, so a walk takes as many steps as the longer of the
+ * two axes.
+ */
+public class FloorPlan {
+	//Matching CustomerGui and WaiterGui
+	public static final int ENTRANCE_X = 20;
+	public static final int ENTRANCE_Y = 20;
+	public static final int KITCHEN_X = 200;
+	public static final int KITCHEN_Y = 10;
+	static final int TABLE_X = 150;
+	static final int TABLE_Y = 250;
+	static final int TABLE_SPACING = 100;
+	static final int TABLES_PER_ROW = 8;
+
+	private final int[] tableX;
+	private final int[] tableY;
+
+	/**
+	 * Constructor for the default layout
+	 *
+	 * @param nTables Number of tables, numbered from 1
+	 */
+	public FloorPlan(int nTables) {
+		tableX = new int[nTables];
+		tableY = new int[nTables];
+		for (int i = 0; i < nTables; i++) {
+			tableX[i] = TABLE_X + (i % TABLES_PER_ROW) * TABLE_SPACING;
+			tableY[i] = TABLE_Y + (i / TABLES_PER_ROW) * TABLE_SPACING;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param tableX x coordinate of each table, by table number - 1
+	 * @param tableY y coordinate of each table, by table number - 1
+	 */
+	public FloorPlan(int[] tableX, int[] tableY) {
+		if (tableX.length != tableY.length) {
+			throw new IllegalArgumentException("tableX and tableY differ in length");
+		}
+		this.tableX = tableX.clone();
+		this.tableY = tableY.clone();
+	}
+
+	/**
+	 * Returns the number of tables on the floor
+	 */
+	public int getTableCount() {
+		return tableX.length;
+	}
+
+	/**
+	 * Returns the x coordinate of a table
+	 *
+	 * @param tableNum Table number
+	 */
+	public int getTableX(int tableNum) {
+		return tableX[tableNum - 1];
+	}
+
+	/**
+	 * Returns the y coordinate of a table
+	 *
+	 * @param tableNum Table number
+	 */
+	public int getTableY(int tableNum) {
+		return tableY[tableNum - 1];
+	}
+
+	/**
+	 * Returns the x coordinate of a waiter's home position, as WaiterGui places it
+	 *
+	 * @param waiterNum Waiter number, from 1
+	 */
+	public static int getWaiterHomeX(int waiterNum) {
+		return 30 * ((waiterNum + 6 - ((waiterNum - 1) % 7)) / 7 - 1);
+	}
+
+	/**
+	 * Returns the y coordinate of a waiter's home position, as WaiterGui places it
+	 *
+	 * @param waiterNum Waiter number, from 1
+	 */
+	public static int getWaiterHomeY(int waiterNum) {
+		return ((waiterNum - 1) % 7) * 30 + 160;
+	}
+
+	/**
+	 * Returns the number of pixels walked between two points
+	 */
+	public static int distance(int x1, int y1, int x2, int y2) {
+		return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2));
+	}
+}
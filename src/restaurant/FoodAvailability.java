@@ -0,0 +1,103 @@
+package restaurant;
+
+import java.util.*;
+
+/**
+ * Tells waiters when a food they took off their menu is back in stock. A
+ * waiter subscribes to a food when the cook says it is out, and the next
+ * restock of that food is delivered to each subscriber once and then
+ * forgotten, so a restock nobody is waiting for costs no messages at all,
+ * and restocks that come before a waiter subscribes again coalesce.
+ *
+ * Thread-safe: the cook publishes from its thread and waiters subscribe
+ * from theirs. Subscribers are messaged after the lock is released.
+ */
+public class FoodAvailability {
+	//Foods sold out and not restocked since, and who wants to hear when they are
+	private final Set<String> soldOut = new HashSet<String>();
+	private final Map<String, Set<Subscriber>> subscribers = new HashMap<String, Set<Subscriber>>();
+	private long published = 0;
+	private long delivered = 0;
+
+	/**
+	 * Someone who can be told a food is back in stock
+	 */
+	public interface Subscriber {
+		public abstract void msgFoodArrived(String food);
+	}
+
+	/**
+	 * Records that a food has run out
+	 *
+	 * @param food Name of the food
+	 */
+	public synchronized void soldOut(String food) {
+		soldOut.add(food);
+	}
+
+	/**
+	 * Asks to be told the next time a food is restocked. Subscribing twice
+	 * before the restock still means one message.
+	 *
+	 * @param food Name of the food
+	 * @param s Who to tell
+	 * @return true if subscribed, false if the food has been restocked since it ran out
+	 */
+	public synchronized boolean subscribe(String food, Subscriber s) {
+		if (!soldOut.contains(food)) {
+			return false;
+		}
+		Set<Subscriber> set = subscribers.get(food);
+		if (set == null) {
+			set = new LinkedHashSet<Subscriber>();
+			subscribers.put(food, set);
+		}
+		set.add(s);
+		return true;
+	}
+
+	/**
+	 * Records that a food has been restocked and tells everyone subscribed to it
+	 *
+	 * @param food Name of the food
+	 */
+	public void publish(String food) {
+		Set<Subscriber> set;
+		synchronized (this) {
+			published++;
+			soldOut.remove(food);
+			set = subscribers.remove(food);
+			if (set == null) {
+				return;
+			}
+			delivered += set.size();
+		}
+		for (Subscriber s : set) {
+			s.msgFoodArrived(food);
+		}
+	}
+
+	/**
+	 * Checks whether a food is sold out
+	 *
+	 * @param food Name of the food
+	 * @return true if it ran out and has not been restocked since, false otherwise
+	 */
+	public synchronized boolean isSoldOut(String food) {
+		return soldOut.contains(food);
+	}
+
+	/**
+	 * Returns the number of restocks published
+	 */
+	public synchronized long getPublishCount() {
+		return published;
+	}
+
+	/**
+	 * Returns the number of messages sent to subscribers
+	 */
+	public synchronized long getDeliveryCount() {
+		return delivered;
+	}
+}
@@ -0,0 +1,346 @@
+package restaurant;
+
+import restaurant.interfaces.Host;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Front door of a restaurant split into sections, each with its own
+ * HostAgent, tables and waiters, so seating decisions in different
+ * sections run on different threads. Customers ask the front door for a
+ * table, and it sends each arriving party to the least loaded section: the
+ * one with the fewest occupied tables and parties waiting per table. A
+ * customer stays with that section until it has seated or turned him away,
+ * or he leaves, so coming back after being deferred and giving up reach
+ * the right host.
+ *
+ * Not an agent: routing is a few reads and one map update on the
+ * customer's own thread. Thread-safe.
+ */
+public class FrontDoor implements Host {
+	private final List<HostAgent> sections;
+	//Parties routed to each section and not yet seated, turned away or gone
+	private final AtomicInteger[] waiting;
+	//Section each customer was sent to, until it is done with him
+	private final Map<CustomerAgent, Integer> routes = new ConcurrentHashMap<CustomerAgent, Integer>();
+	//Section each reservation was booked in, until the party arrives
+	private final Map<String, Integer> bookings = new ConcurrentHashMap<String, Integer>();
+	//Reservations booked in each section whose parties have not yet arrived
+	private final AtomicInteger[] booked;
+
+	/**
+	 * Constructor
+	 *
+	 * @param sections Host of each section; each must have its own tables and waiters
+	 */
+	public FrontDoor(List<HostAgent> sections) {
+		if (sections.isEmpty()) {
+			throw new IllegalArgumentException("no sections");
+		}
+		this.sections = new ArrayList<HostAgent>(sections);
+		waiting = new AtomicInteger[sections.size()];
+		booked = new AtomicInteger[sections.size()];
+		for (int i = 0; i < waiting.length; i++) {
+			waiting[i] = new AtomicInteger();
+			booked[i] = new AtomicInteger();
+			this.sections.get(i).setFrontDoor(this);
+		}
+	}
+
+	/**
+	 * Returns the host of each section
+	 */
+	public List<HostAgent> getSections() {
+		return Collections.unmodifiableList(sections);
+	}
+
+	/**
+	 * Sends a party to a section: the one it has already been sent to, the
+	 * one its reservation is in, or else the least loaded
+	 *
+	 * @param cust Reference to CustomerAgent
+	 * @param partySize Number of people in the party, the customer included
+	 */
+	public void msgIWantFood(CustomerAgent cust, int partySize) {
+		Integer section = routes.get(cust);
+		if (section == null) {
+			section = bookings.remove(cust.getName());
+			if (section != null) {
+				booked[section].decrementAndGet();
+			} else {
+				section = leastLoaded(partySize);
+			}
+			routes.put(cust, section);
+			waiting[section].incrementAndGet();
+		}
+		sections.get(section).msgIWantFood(cust, partySize);
+	}
+
+	/**
+	 * Passes word that a customer is leaving to the section he was sent to
+	 *
+	 * @param c Reference to CustomerAgent
+	 */
+	public void msgImLeaving(CustomerAgent c) {
+		Integer section = routes.remove(c);
+		if (section != null) {
+			waiting[section].decrementAndGet();
+			sections.get(section).msgImLeaving(c);
+		}
+	}
+
+	/**
+	 * Books a table in one of the sections with tables big enough for the
+	 * party: the one already holding a reservation under the name, if any,
+	 * then the one with the fewest reservations still to arrive, trying the
+	 * next if a section is fully booked then. The party is sent to the
+	 * section that took the booking when they arrive. Nothing is booked if
+	 * no section can seat the party.
+	 *
+	 * @param name Name the reservation is under
+	 * @param partySize Number of people in the party
+	 * @param time Time the party is due, on the hosts' TimerService clock
+	 */
+	public void msgMakeReservation(String name, int partySize, long time) {
+		final int[] load = new int[sections.size()];
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < sections.size(); i++) {
+			load[i] = booked[i].get();
+			if (sections.get(i).canEverSeat(partySize)) {
+				order.add(i);
+			}
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return load[a] != load[b] ? Integer.compare(load[a], load[b]) : Integer.compare(a, b);
+			}
+		});
+		Integer current = bookings.get(name);
+		if (current != null && order.remove(current)) {
+			order.add(0, current);
+		}
+		tryNext(new Booking(name, partySize, time, order));
+	}
+
+	/**
+	 * Puts a name on every section's VIP list
+	 *
+	 * @param name Customer's name
+	 */
+	public void addVip(String name) {
+		for (HostAgent host : sections) {
+			host.addVip(name);
+		}
+	}
+
+	/**
+	 * Tells the front door a section has seated or turned away a customer,
+	 * so he counts against it no longer
+	 *
+	 * @param cust Reference to CustomerAgent
+	 */
+	void release(CustomerAgent cust) {
+		Integer section = routes.remove(cust);
+		if (section != null) {
+			waiting[section].decrementAndGet();
+		}
+	}
+
+	/**
+	 * Tells the front door a section has booked a reservation, so the party
+	 * is sent there when they arrive
+	 *
+	 * @param booking Reference to the Booking the section was asked for
+	 */
+	void booked(Booking booking) {
+		Integer old = bookings.put(booking.name, booking.section);
+		if (old != null) {
+			booked[old].decrementAndGet();
+		}
+		booked[booking.section].incrementAndGet();
+	}
+
+	/**
+	 * Tells the front door a section is fully booked at the time asked
+	 * for, so the next section in line is tried
+	 *
+	 * @param booking Reference to the Booking the section was asked for
+	 */
+	void refused(Booking booking) {
+		tryNext(booking);
+	}
+
+	/**
+	 * Asks the next section left to try for a booking, if there is one
+	 *
+	 * @param booking Reference to Booking
+	 */
+	private void tryNext(Booking booking) {
+		Integer section = booking.left.poll();
+		if (section != null) {
+			booking.section = section;
+			sections.get(section).msgMakeReservation(booking.name, booking.partySize, booking.time, booking);
+		}
+	}
+
+	/**
+	 * Returns the section with the fewest occupied tables and waiting
+	 * parties per table, the lowest-numbered among equals, of those with
+	 * tables big enough for the party if any are
+	 *
+	 * @param partySize Number of people in the party
+	 */
+	private int leastLoaded(int partySize) {
+		int best = 0;
+		double bestLoad = Double.MAX_VALUE;
+		for (int i = 0; i < sections.size(); i++) {
+			HostAgent host = sections.get(i);
+			if (!host.canEverSeat(partySize)) {
+				continue;
+			}
+			double load = (double)(host.getOccupiedTableCount() + waiting[i].get()) / host.getTableCount();
+			if (load < bestLoad) {
+				bestLoad = load;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	// Figures for the whole restaurant; read them once the hosts are idle
+
+	/**
+	 * Returns the number of people seated in every section
+	 */
+	public long getCoversSeated() {
+		long covers = 0;
+		for (HostAgent host : sections) {
+			covers += host.getCoversSeated();
+		}
+		return covers;
+	}
+
+	/**
+	 * Returns the share of seats at the tables given out that customers sat in
+	 */
+	public double getSeatUtilization() {
+		long filled = 0;
+		long offered = 0;
+		for (HostAgent host : sections) {
+			filled += host.getCoversSeated();
+			offered += host.getSeatsOffered();
+		}
+		return offered == 0 ? 0 : (double)filled / offered;
+	}
+
+	/**
+	 * Returns the number of waiting customers who left without being seated
+	 */
+	public int getRenegedCount() {
+		int reneged = 0;
+		for (HostAgent host : sections) {
+			reneged += host.getRenegedCount();
+		}
+		return reneged;
+	}
+
+	/**
+	 * Returns how long a party keeps a table, averaged over every table, in milliseconds
+	 */
+	public long getAverageTurnTime() {
+		long total = 0;
+		int tables = 0;
+		for (HostAgent host : sections) {
+			total += host.getAverageTurnTime() * host.getTableCount();
+			tables += host.getTableCount();
+		}
+		return total / tables;
+	}
+
+	/**
+	 * Returns how far, on average, quoted waits were from actual ones, in milliseconds
+	 */
+	public long getMeanQuoteError() {
+		long error = 0;
+		int quotes = 0;
+		for (HostAgent host : sections) {
+			error += host.getMeanQuoteError() * host.getQuotesChecked();
+			quotes += host.getQuotesChecked();
+		}
+		return quotes == 0 ? 0 : error / quotes;
+	}
+
+	/**
+	 * Returns the number of parties the sections turned away, whether too
+	 * big to seat or refused by their admission policies
+	 */
+	public long getRejectedCount() {
+		long rejected = 0;
+		for (HostAgent host : sections) {
+			rejected += host.getTooBigCount() + host.getAdmissionPolicy().getRejectedCount();
+		}
+		return rejected;
+	}
+
+	/**
+	 * Returns the number of times a section asked a party to come back later
+	 */
+	public long getDeferredCount() {
+		long deferred = 0;
+		for (HostAgent host : sections) {
+			deferred += host.getAdmissionPolicy().getDeferredCount();
+		}
+		return deferred;
+	}
+
+	/**
+	 * Returns how long parties in every section waited for their table, at
+	 * the given percentile, in milliseconds
+	 *
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public long getSeatWaitPercentile(double percentile) {
+		List<WaitHistogram> waits = new ArrayList<WaitHistogram>();
+		for (HostAgent.SeatingClass c : HostAgent.SeatingClass.values()) {
+			for (HostAgent host : sections) {
+				waits.add(host.getSeatWaits(c));
+			}
+		}
+		return WaitHistogram.percentile(waits, percentile);
+	}
+
+	/**
+	 * Returns how long parties of one class in every section waited for
+	 * their table, at the given percentile, in milliseconds
+	 *
+	 * @param c Seating class
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public long getSeatWaitPercentile(HostAgent.SeatingClass c, double percentile) {
+		List<WaitHistogram> waits = new ArrayList<WaitHistogram>();
+		for (HostAgent host : sections) {
+			waits.add(host.getSeatWaits(c));
+		}
+		return WaitHistogram.percentile(waits, percentile);
+	}
+
+	/**
+	 * A reservation being booked, and the sections still to try for it
+	 */
+	static class Booking {
+		final String name;
+		final int partySize;
+		final long time;
+		final Deque<Integer> left; //in the order to try them
+		int section; //asked last
+
+		Booking(String name, int partySize, long time, List<Integer> order) {
+			this.name = name;
+			this.partySize = partySize;
+			this.time = time;
+			this.left = new ArrayDeque<Integer>(order);
+		}
+	}
+}
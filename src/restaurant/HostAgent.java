@@ -1,38 +1,193 @@
 package restaurant;
 
 import agent.Agent;
+import agent.Constants;
+import restaurant.interfaces.Host;
 import java.util.*;
 
 /**
  * Restaurant Host Agent
  */
 
-public class HostAgent extends Agent {
+public class HostAgent extends Agent implements Host {
 	static final int NTABLES = 3;
-	public List<MyCustomer> customers = Collections.synchronizedList(new ArrayList<MyCustomer>());
-	public List<MyWaiter> waiters = Collections.synchronizedList(new ArrayList<MyWaiter>());
-	public List<String> foods = Collections.synchronizedList(new ArrayList<String>());
-	public Collection<Table> tables;
+	//Seats at each table when only the number of tables is given, repeated around the floor
+	static final int[] DEFAULT_CAPACITIES = {2, 4, 4, 6};
+	//Weight of the newest turn in each table's running average turn time, and
+	//the turn time assumed for a table until its first party has left
+	static final double TURN_SMOOTHING = 0.2;
+	static final long DEFAULT_TURN_TIME = Constants.MINUTE;
+	//Pixels of walking one more table to serve is worth when choosing a waiter
+	static final long WORKLOAD_COST = 1000;
+	//Size of the cells free tables and available waiters are bucketed in by
+	//where they are, and how many of the nearest are weighed up for each
+	//waiter or table when matching them
+	static final int GRID_CELL = FloorPlan.TABLE_SPACING;
+	static final int NEAREST_TABLES = 4;
+	static final int NEAREST_WAITERS = 4;
+	//How many parties that do not fit the free tables a seating pass looks past
+	static final int SEATING_LOOKAHEAD = 8;
+	static final long RESERVATION_LENGTH = 90 * Constants.MINUTE;
+	//A reserved table stops taking walk-ins this long before the party is due,
+	//and is given back if they have not arrived this long after
+	static final long HOLD_AHEAD = 15 * Constants.MINUTE;
+	static final long NO_SHOW_GRACE = 15 * Constants.MINUTE;
+	//Only touched on the host's own thread; messages are posted to its mailbox
+	//Customers waiting for a table, earliest seating deadline first (see
+	//SeatingClass), and the same customers by agent so one who gives up can
+	//be taken out of line directly
+	private Waitlist<MyCustomer> waitlist = new Waitlist<MyCustomer>();
+	private Map<CustomerAgent, MyCustomer> waitingCustomers = new HashMap<CustomerAgent, MyCustomer>();
+	//Who may join the waitlist, and walk-ins it turned away who have not been told yet
+	private AdmissionPolicy admission = new AdmissionPolicy();
+	private ArrayDeque<MyCustomer> turnedAway = new ArrayDeque<MyCustomer>();
+	private Set<CustomerAgent> deferred = new HashSet<CustomerAgent>();
+	//Names on the host's VIP list
+	private Set<String> vips = new HashSet<String>();
+	//How long seated parties waited for their table, by class
+	private EnumMap<SeatingClass, WaitHistogram> seatWaits = new EnumMap<SeatingClass, WaitHistogram>(SeatingClass.class);
+	//Customers not yet told the restaurant is full, in arrival order
+	private ArrayDeque<MyCustomer> untold = new ArrayDeque<MyCustomer>();
+	public List<MyWaiter> waiters = new ArrayList<MyWaiter>();
+	//Waiters who may be given a customer, least busy first (see MyWaiter.compareTo),
+	//and the same waiters by where they work
+	private TreeSet<MyWaiter> availableWaiters = new TreeSet<MyWaiter>();
+	private FloorGrid<MyWaiter> waiterGrid = new FloorGrid<MyWaiter>(GRID_CELL);
+	private Map<WaiterAgent, MyWaiter> waitersByAgent = new HashMap<WaiterAgent, MyWaiter>();
+	private int waitersOnBreak = 0;
+	//Where the tables and waiters are, for matching parties to nearby ones
+	private FloorPlan floor;
+	//Tables by number - 1, and the unoccupied ones by number of seats, each
+	//size in the order they were freed and by where they are on the floor; a
+	//table is taken out of its size in O(1)
+	private Table[] tables;
+	private TreeMap<Integer, FloorGrid<Table>> freeTables = new TreeMap<Integer, FloorGrid<Table>>();
+	private int freeTableCount = 0;
+	private int freeSeats = 0;
+	//Seats at the biggest table, and at all the tables together
+	private int maxCapacity = 0;
+	private int totalSeats = 0;
+	//Read by the FrontDoor from other threads to find the least loaded section
+	private volatile int occupiedTables = 0;
+	//Front door routing customers to this host, if it runs one section of several
+	private FrontDoor door;
+	//Whether a party too big for any one free table may be seated at several
+	private boolean joinTables = false;
+	//Tables expected to free up per millisecond with all of them occupied:
+	//the sum of 1 / turn time over the tables, kept up to date as they turn
+	private double turnRate;
+	//Parties that have left the walk-in waitlist, seated or not, so a party's
+	//place in line is how many were ahead when it joined less those gone since
+	private long waitlistDepartures = 0;
+	//Waiting customers who gave up, and how far quoted waits were from actual ones
+	private int reneged = 0;
+	//Parties turned away because no table here could ever seat them
+	private int tooBig = 0;
+	private int quotesChecked = 0;
+	private long quoteErrorTotal = 0;
+	//Seats taken by customers, and seats at the tables they were given
+	private long seatsFilled = 0;
+	private long seatsOffered = 0;
+	//Bookings, and customers with a booking who have arrived and wait for their table
+	private ReservationBook reservations;
+	private List<MyCustomer> reservedArrivals = new ArrayList<MyCustomer>();
 
 	private String name;
 	
 	public enum WaiterState
 	{OnTheJob, WantToGoOnBreak, AboutToGoOnBreak, OnBreak};
 
+	/**
+	 * Classes of walk-in party, each with the wait the host aims to seat it
+	 * within. A party's place in line is its arrival time plus that target,
+	 * earliest first, so a VIP goes ahead of regulars who arrived less than
+	 * the difference in targets before them, but a regular who has waited
+	 * longer than that goes ahead of any VIP who arrives after: nobody waits
+	 * forever however many VIPs come in. Parties who booked but did not
+	 * arrive in time for their held table wait as Reservation.
+	 */
+	public enum SeatingClass {
+		Reservation(Constants.MINUTE), Vip(2 * Constants.MINUTE), Regular(10 * Constants.MINUTE);
+
+		final long targetWait;
+
+		SeatingClass(long targetWait) {
+			this.targetWait = targetWait;
+		}
+
+		/**
+		 * Returns the wait the host aims to seat this class within, in milliseconds
+		 */
+		public long getTargetWait() {
+			return targetWait;
+		}
+	};
+
 	/**
 	 * Constructor
 	 *
 	 * @param name Agent name for messages
 	 */
 	public HostAgent(String name) {
+		this(name, NTABLES);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name Agent name for messages
+	 * @param nTables Number of tables in the restaurant, numbered from 1
+	 */
+	public HostAgent(String name, int nTables) {
+		this(name, defaultCapacities(nTables));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name Agent name for messages
+	 * @param capacities Number of seats at each table, by table number - 1
+	 */
+	public HostAgent(String name, int[] capacities) {
 		super();
 
+		if (capacities.length == 0) {
+			throw new IllegalArgumentException("no tables");
+		}
 		this.name = name;
 		// make some tables
-		tables = Collections.synchronizedList(new ArrayList<Table>(NTABLES));
-		for (int ix = 1; ix <= NTABLES; ix++) {
-			tables.add(new Table(ix));//how you add to a collections
+		for (SeatingClass c : SeatingClass.values()) {
+			seatWaits.put(c, new WaitHistogram());
+		}
+		tables = new Table[capacities.length];
+		floor = new FloorPlan(capacities.length);
+		reservations = new ReservationBook(capacities);
+		for (int ix = 1; ix <= capacities.length; ix++) {
+			if (capacities[ix - 1] <= 0) {
+				throw new IllegalArgumentException("table " + ix + " must seat someone: " + capacities[ix - 1]);
+			}
+			tables[ix - 1] = new Table(ix, capacities[ix - 1]);
+			maxCapacity = Math.max(maxCapacity, capacities[ix - 1]);
+			totalSeats += capacities[ix - 1];
+			turnRate += 1.0 / tables[ix - 1].turnTime;
+			addFreeTable(tables[ix - 1]);
+		}
+	}
+
+	/**
+	 * Returns the seats at each of nTables tables laid out from DEFAULT_CAPACITIES
+	 *
+	 * @param nTables Number of tables
+	 */
+	static int[] defaultCapacities(int nTables) {
+		if (nTables <= 0) {
+			throw new IllegalArgumentException("nTables must be positive: " + nTables);
+		}
+		int[] capacities = new int[nTables];
+		for (int i = 0; i < nTables; i++) {
+			capacities[i] = DEFAULT_CAPACITIES[i % DEFAULT_CAPACITIES.length];
 		}
+		return capacities;
 	}
 
 	/**
@@ -56,21 +211,321 @@ public class HostAgent extends Agent {
 		return getName();
 	}
 	
+	/**
+	 * Returns the number of tables in the restaurant
+	 */
+	public int getTableCount() {
+		return tables.length;
+	}
+	
+	/**
+	 * Returns the number of tables occupied right now; safe to call from any thread
+	 */
+	public int getOccupiedTableCount() {
+		return occupiedTables;
+	}
+
+	/**
+	 * Makes this host one section behind a FrontDoor, which it tells when it
+	 * has seated or turned away a customer. Called by the FrontDoor.
+	 *
+	 * @param door Reference to FrontDoor
+	 */
+	void setFrontDoor(FrontDoor door) {
+		this.door = door;
+	}
+
+	/**
+	 * Returns the number of seats at the given table
+	 *
+	 * @param tableNum Table number
+	 */
+	public int getTableCapacity(int tableNum) {
+		return tables[tableNum - 1].capacity;
+	}
+
+	/**
+	 * Replaces the default layout of tables used to match parties with tables
+	 * and waiters. Call before starting the agent.
+	 *
+	 * @param floor Reference to FloorPlan with a position for every table
+	 */
+	public void setFloorPlan(FloorPlan floor) {
+		if (floor.getTableCount() != tables.length) {
+			throw new IllegalArgumentException("floor plan has " + floor.getTableCount() + " tables, not " + tables.length);
+		}
+		//the free tables are bucketed by where they were; put them back where they are now
+		List<Table> free = new ArrayList<Table>();
+		for (FloorGrid<Table> size : freeTables.values()) {
+			for (Table table : size) {
+				free.add(table);
+			}
+		}
+		for (Table table : free) {
+			removeFreeTable(table);
+		}
+		this.floor = floor;
+		for (Table table : free) {
+			addFreeTable(table);
+		}
+	}
+
+	/**
+	 * Returns the layout of tables used to match parties with tables and waiters
+	 */
+	public FloorPlan getFloorPlan() {
+		return floor;
+	}
+
+	/**
+	 * Lets a party too big for any one free table be seated at several free
+	 * tables pushed together. Off by default. Call before starting the agent.
+	 *
+	 * @param joinTables true to join tables, false to keep every party at one table
+	 */
+	public void setJoinTables(boolean joinTables) {
+		this.joinTables = joinTables;
+	}
+
+	/**
+	 * Returns the number of people seated so far, counting every member of each party
+	 */
+	public long getCoversSeated() {
+		return seatsFilled;
+	}
+
+	/**
+	 * Replaces the policy deciding which walk-ins may join the waitlist; the
+	 * default admits everyone. Call before starting the agent.
+	 *
+	 * @param admission Reference to AdmissionPolicy
+	 */
+	public void setAdmissionPolicy(AdmissionPolicy admission) {
+		this.admission = admission;
+	}
+
+	/**
+	 * Returns the policy deciding which walk-ins may join the waitlist
+	 */
+	public AdmissionPolicy getAdmissionPolicy() {
+		return admission;
+	}
+
+	/**
+	 * Returns how long seated parties waited for their table, at the given
+	 * percentile, in milliseconds (see WaitHistogram); 0 before anyone is seated
+	 *
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public long getSeatWaitPercentile(double percentile) {
+		return WaitHistogram.percentile(new ArrayList<WaitHistogram>(seatWaits.values()), percentile);
+	}
+
+	/**
+	 * Returns how long seated parties of one class waited for their table,
+	 * at the given percentile, in milliseconds (see WaitHistogram); 0 before
+	 * any of them is seated
+	 *
+	 * @param c Seating class
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public long getSeatWaitPercentile(SeatingClass c, double percentile) {
+		return seatWaits.get(c).getPercentile(percentile);
+	}
+
+	/**
+	 * Returns the number of seats at the tables given out so far
+	 */
+	long getSeatsOffered() {
+		return seatsOffered;
+	}
+
+	/**
+	 * Returns the number of seated customers who had been quoted a wait
+	 */
+	int getQuotesChecked() {
+		return quotesChecked;
+	}
+
+	/**
+	 * Returns how long seated parties of one class waited for their table
+	 *
+	 * @param c Seating class
+	 */
+	WaitHistogram getSeatWaits(SeatingClass c) {
+		return seatWaits.get(c);
+	}
+
+	/**
+	 * Returns the share of seats at the tables given out that customers sat
+	 * in, 1.0 if every party filled its table; 0 before anyone is seated
+	 */
+	public double getSeatUtilization() {
+		return seatsOffered == 0 ? 0 : (double)seatsFilled / seatsOffered;
+	}
+	
+	/**
+	 * Returns the number of walk-in parties waiting for a table
+	 */
+	public int getQueueLength() {
+		return waitlist.size();
+	}
+
+	/**
+	 * Returns the wait a walk-in party arriving now would be quoted, in milliseconds
+	 */
+	public long getEstimatedWait() {
+		return estimateWait(waitlist.size());
+	}
+
+	/**
+	 * Returns how long a party keeps a table, averaged over the tables'
+	 * running averages, in milliseconds
+	 */
+	public long getAverageTurnTime() {
+		return Math.round(tables.length / turnRate);
+	}
+
+	/**
+	 * Returns the number of waiting customers who left without being seated
+	 */
+	public int getRenegedCount() {
+		return reneged;
+	}
+
+	/**
+	 * Returns the number of parties turned away because they were too big for every table
+	 */
+	public int getTooBigCount() {
+		return tooBig;
+	}
+
+	/**
+	 * Returns how far, on average, the waits quoted to seated customers were
+	 * from how long they actually waited, in milliseconds; 0 if none were quoted
+	 */
+	public long getMeanQuoteError() {
+		return quotesChecked == 0 ? 0 : quoteErrorTotal / quotesChecked;
+	}
+
+	/**
+	 * Returns the expected wait for a party with the given number ahead of
+	 * them when every table is occupied: one table turn for each party
+	 * ahead and one for themselves. O(1); turnRate is kept up to date as
+	 * tables turn.
+	 *
+	 * @param ahead Number of parties ahead in line
+	 */
+	private long estimateWait(long ahead) {
+		return Math.round((ahead + 1) / turnRate);
+	}
+
+	/**
+	 * Folds how long a party kept a table into the table's running average
+	 * turn time and the restaurant's turn rate
+	 *
+	 * @param table Reference to Table just left
+	 * @param turn How long the party had it, in milliseconds
+	 */
+	private void recordTurn(Table table, long turn) {
+		turnRate -= 1.0 / table.turnTime;
+		table.turnTime += TURN_SMOOTHING * (Math.max(1, turn) - table.turnTime);
+		turnRate += 1.0 / table.turnTime;
+	}
+	
 	/**
 	 * Checks if all tables in restaurant are occupied
 	 * 
 	 * @return true if all tables are occupied, false otherwise
 	 */
 	public boolean restaurantFull() {
-		synchronized(tables) {
-			for (Table table : tables) {
-				if (!table.isOccupied()) {
-					return false;
-				}
-			}
+		return freeTableCount == 0;
+	}
+
+	/**
+	 * Checks if the restaurant could ever seat a party, with every table free
+	 *
+	 * @param partySize Number of people in the party
+	 * @return true if one table is big enough, or all of them joined are if allowed
+	 */
+	public boolean canEverSeat(int partySize) {
+		return maxCapacity >= partySize || (joinTables && totalSeats >= partySize);
+	}
+
+	/**
+	 * Checks if the free tables can seat a party right now
+	 *
+	 * @param partySize Number of people in the party
+	 * @return true if one free table is big enough, or joined tables are if allowed
+	 */
+	private boolean canSeat(int partySize) {
+		if (freeTableCount == 0) {
+			return false;
+		}
+		return freeTables.lastKey() >= partySize || (joinTables && freeSeats >= partySize);
+	}
+
+	/**
+	 * Puts a table on the free list
+	 */
+	private void addFreeTable(Table table) {
+		FloorGrid<Table> free = freeTables.get(table.capacity);
+		if (free == null) {
+			free = new FloorGrid<Table>(GRID_CELL);
+			freeTables.put(table.capacity, free);
+		}
+		free.add(table, floor.getTableX(table.tableNumber), floor.getTableY(table.tableNumber));
+		freeTableCount++;
+		freeSeats += table.capacity;
+	}
+
+	/**
+	 * Takes a table off the free list, wherever it is in its size; O(1)
+	 * apart from finding the size in the TreeMap
+	 *
+	 * @return true if it was free, false otherwise
+	 */
+	private boolean removeFreeTable(Table table) {
+		FloorGrid<Table> free = freeTables.get(table.capacity);
+		if (free == null || !free.remove(table)) {
+			return false;
+		}
+		if (free.isEmpty()) {
+			freeTables.remove(table.capacity);
 		}
+		freeTableCount--;
+		freeSeats -= table.capacity;
 		return true;
 	}
+
+	/**
+	 * Takes the free tables for a party off the free list: the smallest
+	 * table that fits, or if none does, the biggest free tables until the
+	 * rest of the party fits at the smallest that will take them. Call only
+	 * when canSeat(partySize).
+	 *
+	 * @param partySize Number of people in the party
+	 * @return the table the party is seated at, with any tables joined to it
+	 */
+	private Table takeTables(int partySize) {
+		Table first = null;
+		int left = partySize;
+		while (left > 0) {
+			Map.Entry<Integer, FloorGrid<Table>> fit = freeTables.ceilingEntry(left);
+			if (fit == null) {
+				fit = freeTables.lastEntry();
+			}
+			Table table = fit.getValue().first();
+			removeFreeTable(table);
+			if (first == null) {
+				first = table;
+			} else {
+				first.joined.add(table);
+			}
+			left -= table.capacity;
+		}
+		return first;
+	}
 	
 	/**
 	 * Checks if there are no WaiterAgents on break
@@ -78,14 +533,7 @@ public class HostAgent extends Agent {
 	 * @return true if there are no waiters on break, false otherwise
 	 */
 	public boolean noWaitersOnBreak() {
-		synchronized(waiters) {
-			for (MyWaiter waiter : waiters) {
-				if (waiter.getState() == WaiterState.OnBreak || waiter.getState() == WaiterState.AboutToGoOnBreak) {
-					return false;
-				}
-			}
-		}
-		return true;
+		return waitersOnBreak == 0;
 	}
 	
 	/**
@@ -93,27 +541,114 @@ public class HostAgent extends Agent {
 	 * 
 	 * @param waiter Reference to WaiterAgent
 	 */
-	public void addWaiter(WaiterAgent waiter) {
-		waiters.add(new MyWaiter(waiter));
-		stateChanged();
+	public void addWaiter(final WaiterAgent waiter) {
+		post(new Runnable() {
+			public void run() {
+				MyWaiter mw = new MyWaiter(waiter, waiters.size());
+				mw.x = FloorPlan.getWaiterHomeX(mw.index + 1);
+				mw.y = FloorPlan.getWaiterHomeY(mw.index + 1);
+				waiters.add(mw);
+				waitersByAgent.put(waiter, mw);
+				availableWaiters.add(mw);
+				waiterGrid.add(mw, mw.x, mw.y);
+			}
+		});
+	}
+	
+	/**
+	 * Sets the state of the host's record of the specified waiter
+	 * 
+	 * @param waiter Reference to WaiterAgent
+	 * @param state New WaiterState
+	 */
+	private void setWaiterState(WaiterAgent waiter, WaiterState state) {
+		MyWaiter mw = waitersByAgent.get(waiter);
+		if (mw != null) {
+			setWaiterState(mw, state);
+		}
+	}
+	
+	/**
+	 * Sets the state of the host's record of a waiter, keeping the set of
+	 * available waiters and the count of waiters on break up to date
+	 * 
+	 * @param mw Reference to MyWaiter
+	 * @param state New WaiterState
+	 */
+	private void setWaiterState(MyWaiter mw, WaiterState state) {
+		if (mw.isOnBreak()) {
+			waitersOnBreak--;
+		} else {
+			availableWaiters.remove(mw);
+			waiterGrid.remove(mw);
+		}
+		mw.setState(state);
+		if (mw.isOnBreak()) {
+			waitersOnBreak++;
+		} else {
+			availableWaiters.add(mw);
+			waiterGrid.add(mw, mw.x, mw.y);
+		}
+	}
+	
+	/**
+	 * Changes the number of tables a waiter is serving, re-sorting the waiter
+	 * among the available ones
+	 * 
+	 * @param mw Reference to MyWaiter
+	 * @param delta Number of tables gained (or lost, if negative)
+	 */
+	private void addActiveTables(MyWaiter mw, int delta) {
+		boolean available = availableWaiters.remove(mw);
+		mw.activeTables += delta;
+		if (available) {
+			availableWaiters.add(mw);
+		}
+	}
+
+	/**
+	 * Changes where a waiter works, moving him in waiterGrid if he is available
+	 *
+	 * @param mw Reference to MyWaiter
+	 * @param x New x coordinate
+	 * @param y New y coordinate
+	 */
+	private void moveWaiter(MyWaiter mw, int x, int y) {
+		boolean available = waiterGrid.remove(mw);
+		mw.x = x;
+		mw.y = y;
+		if (available) {
+			waiterGrid.add(mw, x, y);
+		}
 	}
 	
 	// Messages
 
+	/**
+	 * Puts a name on the VIP list, so a customer by that name is seated ahead
+	 * of regulars and never turned away by the admission policy
+	 * 
+	 * @param name Customer's name
+	 */
+	public void addVip(final String name) {
+		post(new Runnable() {
+			public void run() {
+				vips.add(name);
+			}
+		});
+	}
+	
 	/**
 	 * Tells the host that the specified waiter wants to go on break
 	 * 
 	 * @param waiter Reference to WaiterAgent
 	 */
-	public void msgWantToGoOnBreak(WaiterAgent waiter) {
-		synchronized(waiters) {
-			for (MyWaiter mw : waiters) {
-				if (mw.getWaiter() == waiter) {
-					mw.setState(WaiterState.WantToGoOnBreak);
-					stateChanged();
-				}
+	public void msgWantToGoOnBreak(final WaiterAgent waiter) {
+		post(new Runnable() {
+			public void run() {
+				setWaiterState(waiter, WaiterState.WantToGoOnBreak);
 			}
-		}
+		});
 	}
 	
 	/**
@@ -121,15 +656,12 @@ public class HostAgent extends Agent {
 	 * 
 	 * @param waiter Reference to WaiterAgent
 	 */
-	public void msgGoingOnBreak(WaiterAgent waiter) {
-		synchronized(waiters) {
-			for (MyWaiter mw : waiters) {
-				if (mw.getWaiter() == waiter) {
-					mw.setState(WaiterState.OnBreak);
-					stateChanged();
-				}
+	public void msgGoingOnBreak(final WaiterAgent waiter) {
+		post(new Runnable() {
+			public void run() {
+				setWaiterState(waiter, WaiterState.OnBreak);
 			}
-		}
+		});
 	}
 	
 	/**
@@ -137,51 +669,113 @@ public class HostAgent extends Agent {
 	 * 
 	 * @param waiter Reference to WaiterAgent
 	 */
-	public void msgGoingOffBreak(WaiterAgent waiter) {
-		synchronized(waiters) {
-			for (MyWaiter mw : waiters) {
-				if (mw.getWaiter() == waiter) {
-					mw.setState(WaiterState.OnTheJob);
-					stateChanged();
-				}
+	public void msgGoingOffBreak(final WaiterAgent waiter) {
+		post(new Runnable() {
+			public void run() {
+				setWaiterState(waiter, WaiterState.OnTheJob);
 			}
-		}
+		});
 	}
 	
 	/**
-	 * Tells the host that the specified customer wants to be seated
+	 * Tells the host that the specified customer wants to be seated on their own
 	 * 
 	 * @param cust Reference to CustomerAgent
 	 */
 	public void msgIWantFood(CustomerAgent cust) {
-		customers.add(new MyCustomer(cust));
-		stateChanged();
+		msgIWantFood(cust, 1);
 	}
 
 	/**
-	 * Tells the host that the table with the specified number is unoccupied
+	 * Tells the host that the specified customer wants a table for their party
 	 * 
-	 * @param tableNum Number of the unoccupied table
+	 * @param cust Reference to CustomerAgent
+	 * @param partySize Number of people in the party, the customer included
 	 */
-	public void msgTableAvailable(int tableNum) {
-		synchronized(tables) {
-			for (Table table : tables) {
-				if (table.getTableNumber() == tableNum) {
-					table.setOccupied(false);
-					stateChanged();
+	public void msgIWantFood(final CustomerAgent cust, final int partySize) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = new MyCustomer(cust, Math.max(1, partySize));
+				long now = getTimerService().currentTimeMillis();
+				mc.arrivedAt = now;
+				MyCustomer old = waitingCustomers.put(cust, mc);
+				if (old != null) {
+					removeWaitingCustomer(old);
+				}
+				ReservationBook.Reservation r = reservations.find(cust.getName());
+				if (r != null && !r.cancelled && !r.seated && mc.partySize <= tables[r.getTable() - 1].capacity
+						&& now >= r.getStart() - HOLD_AHEAD && now <= r.getStart() + NO_SHOW_GRACE) {
+					r.arrived = true;
+					mc.reservation = r;
+					reservedArrivals.add(mc);
+				} else {
+					if (r != null && !r.seated) {
+						//too early, too late or too many for the table: the booking is
+						//used up, and the party waits in line ahead of walk-ins instead
+						reservations.cancel(r);
+						releaseHold(r);
+						mc.seatingClass = SeatingClass.Reservation;
+					} else if (vips.contains(cust.getName())) {
+						mc.seatingClass = SeatingClass.Vip;
+					}
+					long wait = waitlist.isEmpty() && canSeat(mc.partySize) ? 0 : estimateWait(waitlist.size());
+					if (!canEverSeat(mc.partySize)) {
+						tooBig++;
+						mc.admission = AdmissionPolicy.Decision.Reject;
+					} else if (mc.seatingClass != SeatingClass.Regular) {
+						mc.admission = AdmissionPolicy.Decision.Admit;
+					} else if (deferred.remove(cust)) {
+						mc.admission = admission.readmit(waitlist.size(), wait);
+					} else {
+						mc.admission = admission.admit(waitlist.size(), wait, now);
+					}
+					if (mc.admission != AdmissionPolicy.Decision.Admit) {
+						waitingCustomers.remove(cust);
+						if (mc.admission == AdmissionPolicy.Decision.Defer) {
+							deferred.add(cust);
+							mc.retryDelay = admission.getRetryDelay();
+						}
+						turnedAway.add(mc);
+						return;
+					}
+					mc.aheadAtJoin = waitlist.size();
+					mc.departuresAtJoin = waitlistDepartures;
+					mc.deadline = now + mc.seatingClass.targetWait;
+					mc.place = waitlist.add(mc, mc.deadline);
+					untold.add(mc);
 				}
 			}
-		}
+		});
 	}
-	
+
 	/**
-	 * Tells the host that the restaurant has received an order of the specified food
+	 * Tells the host that the table with the specified number is unoccupied
 	 * 
-	 * @param food Name of the food
+	 * @param tableNum Number of the unoccupied table
 	 */
-	public void msgReceivedOrder(String food) {
-		foods.add(food);
-		stateChanged();
+	public void msgTableAvailable(final int tableNum) {
+		post(new Runnable() {
+			public void run() {
+				if (tableNum < 1 || tableNum > tables.length) {
+					return;
+				}
+				Table table = tables[tableNum - 1];
+				if (table.isOccupied()) {
+					long turn = getTimerService().currentTimeMillis() - table.seatedAt;
+					recordTurn(table, turn);
+					freeTable(table);
+					for (Table t : table.joined) {
+						recordTurn(t, turn);
+						freeTable(t);
+					}
+					table.joined.clear();
+					if (table.waiter != null) {
+						addActiveTables(table.waiter, -1);
+						table.waiter = null;
+					}
+				}
+			}
+		});
 	}
 	
 	/**
@@ -189,15 +783,314 @@ public class HostAgent extends Agent {
 	 * 
 	 * @param c Reference to CustomerAgent
 	 */
-	public void msgImLeaving(CustomerAgent c) {
-		synchronized(customers) {
-			for (MyCustomer mc : customers) {
-				if (mc.cust == c) {
-					customers.remove(mc);
-					stateChanged();
+	public void msgImLeaving(final CustomerAgent c) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = waitingCustomers.remove(c);
+				if (mc != null) {
+					removeWaitingCustomer(mc);
+					reneged++;
+				} else if (deferred.remove(c)) {
+					admission.cancelDeferral();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Books a table for one person due at the given time
+	 * 
+	 * @param name Name the reservation is under
+	 * @param time Time the party is due, on the host's TimerService clock
+	 */
+	public void msgMakeReservation(String name, long time) {
+		msgMakeReservation(name, 1, time);
+	}
+
+	/**
+	 * Books the smallest table that seats a party due at the given time,
+	 * holding it for them from HOLD_AHEAD before until they arrive or
+	 * NO_SHOW_GRACE after. A customer with the same name who arrives in that
+	 * window is seated there ahead of the walk-in waitlist. Reserved tables
+	 * are never joined.
+	 * 
+	 * @param name Name the reservation is under
+	 * @param partySize Number of people in the party
+	 * @param time Time the party is due, on the host's TimerService clock
+	 */
+	public void msgMakeReservation(String name, int partySize, long time) {
+		msgMakeReservation(name, partySize, time, null);
+	}
+
+	/**
+	 * Books a table as above for the FrontDoor, telling it whether the
+	 * booking was made or this section is fully booked then, so it can try
+	 * another. Called by the FrontDoor.
+	 * 
+	 * @param name Name the reservation is under
+	 * @param partySize Number of people in the party
+	 * @param time Time the party is due, on the host's TimerService clock
+	 * @param booking Reference to the FrontDoor's Booking, or null if there is no front door to tell
+	 */
+	void msgMakeReservation(final String name, final int partySize, final long time, final FrontDoor.Booking booking) {
+		post(new Runnable() {
+			public void run() {
+				ReservationBook.Reservation old = reservations.find(name);
+				if (old != null && old.arrived && !old.cancelled && !old.seated) {
+					print("Sorry {}, you're already waiting for your table", name);
+					return;
+				}
+				final ReservationBook.Reservation r = reservations.book(name, partySize, time, RESERVATION_LENGTH);
+				if (r == null) {
+					print("Sorry {}, we're fully booked then", name);
+					if (booking != null) {
+						door.refused(booking);
+					}
 					return;
 				}
+				if (old != null) {
+					releaseHold(old);
+				}
+				print("Reserved {}", r);
+				if (booking != null) {
+					door.booked(booking);
+				}
+				long now = getTimerService().currentTimeMillis();
+				getTimerService().schedule(new Runnable() {
+					public void run() {
+						post(new Runnable() {
+							public void run() {
+								holdTable(r);
+							}
+						});
+					}
+				}, time - HOLD_AHEAD - now);
+				getTimerService().schedule(new Runnable() {
+					public void run() {
+						post(new Runnable() {
+							public void run() {
+								releaseNoShow(r);
+							}
+						});
+					}
+				}, time + NO_SHOW_GRACE - now);
 			}
+		});
+	}
+
+	/**
+	 * Stops giving a reserved table to walk-ins. If the table is still held
+	 * for an earlier party, this hold waits its turn behind it.
+	 * 
+	 * @param r Reservation coming up
+	 */
+	private void holdTable(ReservationBook.Reservation r) {
+		if (r.cancelled || r.seated) {
+			return;
+		}
+		Table table = tables[r.getTable() - 1];
+		if (table.heldFor != null) {
+			table.nextHolds.add(r);
+			return;
+		}
+		table.heldFor = r;
+		if (!table.isOccupied()) {
+			removeFreeTable(table);
+		}
+	}
+
+	/**
+	 * Lets go of a table held, or due to be held, for a reservation that
+	 * will not be used: the next hold waiting on the table takes it, or else
+	 * it goes back to walk-ins if it is empty
+	 * 
+	 * @param r Reservation cancelled, replaced or not shown up for
+	 */
+	private void releaseHold(ReservationBook.Reservation r) {
+		Table table = tables[r.getTable() - 1];
+		if (table.heldFor != r) {
+			table.nextHolds.remove(r);
+			return;
+		}
+		table.heldFor = table.nextHolds.poll();
+		if (table.heldFor == null && !table.isOccupied()) {
+			addFreeTable(table);
+		}
+	}
+
+	/**
+	 * Gives a held table back to walk-ins if its party never came
+	 * 
+	 * @param r Reservation that is due
+	 */
+	private void releaseNoShow(ReservationBook.Reservation r) {
+		if (r.cancelled || r.seated || r.arrived) {
+			return;
+		}
+		print("{} did not show up", r.getName());
+		reservations.cancel(r);
+		releaseHold(r);
+	}
+
+	/**
+	 * Marks a table unoccupied, returning it to the free list unless it is
+	 * held for a reservation
+	 *
+	 * @param table Reference to Table
+	 */
+	private void freeTable(Table table) {
+		table.setOccupied(false);
+		occupiedTables--;
+		if (table.heldFor == null) {
+			addFreeTable(table);
+		}
+	}
+
+	/**
+	 * Works out every seating that can be made right now, taking the tables
+	 * and choosing each party's waiter as it goes (see placeWalkIn): first parties
+	 * with a reservation whose held table is empty, then walk-ins in
+	 * waitlist order. A walk-in party the free tables cannot seat is passed
+	 * over so a big party at the front does not keep small tables empty, but
+	 * the pass gives up after SEATING_LOOKAHEAD of them, or at once if that
+	 * party is past its target wait, so tables it needs are not given away
+	 * behind it for ever.
+	 *
+	 * @return the seatings, in the order the waiters should be called
+	 */
+	private List<Seating> planSeatings() {
+		List<Seating> batch = new ArrayList<Seating>();
+		for (Iterator<MyCustomer> it = reservedArrivals.iterator(); it.hasNext();) {
+			if (availableWaiters.isEmpty()) {
+				return batch;
+			}
+			MyCustomer mc = it.next();
+			Table table = tables[mc.reservation.getTable() - 1];
+			if (table.heldFor == mc.reservation && !table.isOccupied()) {
+				it.remove();
+				batch.add(assignTable(nearestWaiter(table), mc, table));
+			}
+		}
+		int passedOver = 0;
+		long now = getTimerService().currentTimeMillis();
+		for (MyCustomer mc : waitlist) {
+			if (freeTableCount == 0 || availableWaiters.isEmpty()) {
+				break;
+			}
+			if (canSeat(mc.partySize)) {
+				batch.add(placeWalkIn(mc));
+			} else if (now > mc.deadline || ++passedOver == SEATING_LOOKAHEAD) {
+				break;
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Seats a walk-in party at the free table and with the available waiter
+	 * that cost least between them (see serviceCost), among the smallest free
+	 * tables that fit. Each waiter is weighed up only against the
+	 * NEAREST_TABLES or so of those tables nearest where he works, found in
+	 * the size's FloorGrid, not against every one of them. Waiters are
+	 * tried least busy first, so once the workload alone costs more than
+	 * the best pair found nobody further on can beat it. A party that needs
+	 * joined tables goes to the least busy waiter. Call only when
+	 * canSeat(mc.partySize) and a waiter is available.
+	 *
+	 * For W available waiters and F free tables of the size this is
+	 * O(W * (NEAREST_TABLES + min(c, F))), where c is the number of grid
+	 * cells out to a waiter's nearest free tables: a few when tables of the
+	 * size are free all over the floor, and when they are not F is small.
+	 * serviceCost is worked out O(W * NEAREST_TABLES) times, not O(W * F).
+	 *
+	 * @param mc Reference to MyCustomer
+	 * @return the seating
+	 */
+	private Seating placeWalkIn(MyCustomer mc) {
+		Map.Entry<Integer, FloorGrid<Table>> fit = freeTables.ceilingEntry(mc.partySize);
+		if (fit == null) {
+			return assignTable(availableWaiters.first(), mc, takeTables(mc.partySize));
+		}
+		MyWaiter bestWaiter = null;
+		Table bestTable = null;
+		long bestCost = Long.MAX_VALUE;
+		List<Table> nearby = new ArrayList<Table>();
+		for (MyWaiter mw : availableWaiters) {
+			if (WORKLOAD_COST * mw.activeTables >= bestCost) {
+				break;
+			}
+			nearby.clear();
+			fit.getValue().nearest(mw.x, mw.y, NEAREST_TABLES, nearby);
+			for (Table table : nearby) {
+				long cost = serviceCost(mw, table);
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestWaiter = mw;
+					bestTable = table;
+				}
+			}
+		}
+		removeFreeTable(bestTable);
+		return assignTable(bestWaiter, mc, bestTable);
+	}
+
+	/**
+	 * Returns the available waiter who costs least to serve a table, of the
+	 * NEAREST_WAITERS or so working nearest it and the least busy one, in
+	 * case his lighter workload outweighs the walk. For W available waiters
+	 * this is O(NEAREST_WAITERS + min(c, W)), where c is the number of cells
+	 * of waiterGrid out to the nearest of them. Call only when a waiter is
+	 * available.
+	 *
+	 * @param table Reference to Table
+	 */
+	private MyWaiter nearestWaiter(Table table) {
+		List<MyWaiter> nearby = new ArrayList<MyWaiter>();
+		waiterGrid.nearest(floor.getTableX(table.tableNumber), floor.getTableY(table.tableNumber), NEAREST_WAITERS, nearby);
+		nearby.add(availableWaiters.first());
+		MyWaiter best = null;
+		long bestCost = Long.MAX_VALUE;
+		for (MyWaiter mw : nearby) {
+			long cost = serviceCost(mw, table);
+			if (cost < bestCost) {
+				bestCost = cost;
+				best = mw;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns what it costs a waiter to take a table, in pixels walked: from
+	 * where he is to the entrance, bringing the party to the table, two trips
+	 * between the table and the kitchen for the order and the food, and back
+	 * to his part of the floor, plus WORKLOAD_COST for each table he is
+	 * already serving
+	 *
+	 * @param mw Reference to MyWaiter
+	 * @param table Reference to Table
+	 */
+	private long serviceCost(MyWaiter mw, Table table) {
+		int tx = floor.getTableX(table.tableNumber);
+		int ty = floor.getTableY(table.tableNumber);
+		return FloorPlan.distance(mw.x, mw.y, FloorPlan.ENTRANCE_X, FloorPlan.ENTRANCE_Y)
+				+ FloorPlan.distance(FloorPlan.ENTRANCE_X, FloorPlan.ENTRANCE_Y, tx, ty)
+				+ 2 * FloorPlan.distance(tx, ty, FloorPlan.KITCHEN_X, FloorPlan.KITCHEN_Y)
+				+ FloorPlan.distance(tx, ty, mw.x, mw.y)
+				+ WORKLOAD_COST * mw.activeTables;
+	}
+
+	/**
+	 * Takes a customer out of whichever line they are waiting in
+	 * 
+	 * @param mc Reference to MyCustomer
+	 */
+	private void removeWaitingCustomer(MyCustomer mc) {
+		if (mc.reservation != null) {
+			reservedArrivals.remove(mc);
+			mc.reservation.arrived = false;
+		} else if (waitlist.remove(mc.place)) {
+			waitlistDepartures++;
 		}
 	}
 
@@ -205,56 +1098,53 @@ public class HostAgent extends Agent {
 	 * Scheduler.  Determine what action is called for, and do it.
 	 */
 	public boolean pickAndExecuteAnAction() {
-		synchronized(customers) {
-			for (MyCustomer mc : customers) {
-				if (mc.waiting && restaurantFull()) {
-					tellCustomer(mc);
-				}
+		//Walk-ins the admission policy would not take hear so straight away
+		if (!turnedAway.isEmpty()) {
+			rule("turnAway");
+			while (!turnedAway.isEmpty()) {
+				turnAway(turnedAway.poll());
 			}
+			return true;
 		}
-		
-		synchronized(tables) {
-			for (Table table : tables) {
-				if (!table.isOccupied()) {
-					if (!customers.isEmpty() && !waiters.isEmpty()) {
-						int index = 0;
-						if (waiters.size() > 1) {
-							for (int i = waiters.size()-2; i>=0; i--) {
-								if (waiters.get(i+1).getState() == WaiterState.OnTheJob || waiters.get(i+1).getState() == WaiterState.WantToGoOnBreak) {
-									if (waiters.get(i).customerCount > waiters.get(i+1).customerCount) {
-										index = i+1;
-									}
-								}
-							}
-						}
-						if (index == 0 && (waiters.get(index).getState() == WaiterState.AboutToGoOnBreak || waiters.get(index).getState() == WaiterState.OnBreak)) {
-							index = 1;
-						}
-						callWaiter(waiters.get(index).getWaiter(), customers.get(0), table);//the action
-						waiters.get(index).addCustomer();
-						return true;//return true to the abstract agent to reinvoke the scheduler.
-					}
+
+		//Each customer is told at most once, the first time the restaurant is
+		//full while they wait; customers already seated or gone are dropped.
+		//One the seating pass below is about to seat is left for it, but with
+		//no waiter free nobody is about to be seated, so everyone is told.
+		while (!untold.isEmpty()) {
+			MyCustomer mc = untold.peek();
+			if (mc.place.isQueued()) {
+				if (canSeat(mc.partySize) && !availableWaiters.isEmpty()) {
+					break;
 				}
+				rule("tellCustomer");
+				tellCustomer(mc);
 			}
+			untold.poll();
 		}
 		
-		synchronized(waiters) {
-			for (MyWaiter mw : waiters) {
-				if (mw.getState() == WaiterState.WantToGoOnBreak) {
-					if (waiters.size() > 1 && noWaitersOnBreak()) {
-						canGoOnBreak(mw);
-						return true;
-					}
-					cantGoOnBreak(mw);
-					return true;
+		//Seat everyone who can be seated in one pass rather than one party a pass;
+		//parties with a reservation go ahead of walk-ins once their table is held and empty
+		if (!availableWaiters.isEmpty() && (!reservedArrivals.isEmpty() || (freeTableCount > 0 && !waitlist.isEmpty()))) {
+			List<Seating> batch = planSeatings();
+			if (!batch.isEmpty()) {
+				rule("seatBatch");
+				for (Seating s : batch) {
+					callWaiter(s);//the action
 				}
+				return true;//return true to the abstract agent to reinvoke the scheduler.
 			}
 		}
 		
-		synchronized(foods) {
-			for (String f : foods) {
-				notifyWaiters(f);
-				foods.remove(f);
+		for (MyWaiter mw : waiters) {
+			if (mw.getState() == WaiterState.WantToGoOnBreak) {
+				if (waiters.size() > 1 && noWaitersOnBreak()) {
+					rule("canGoOnBreak");
+					canGoOnBreak(mw);
+					return true;
+				}
+				rule("cantGoOnBreak");
+				cantGoOnBreak(mw);
 				return true;
 			}
 		}
@@ -268,23 +1158,55 @@ public class HostAgent extends Agent {
 	// Actions
 
 	/**
-	 * Tells a waiter to seat a customer at a table
+	 * Gives a customer a table and a waiter in the host's records; the waiter
+	 * is told by callWaiter
 	 * 
-	 * @param waiter Reference to WaiterAgent
-	 * @param mc Reference to MyCustomer
-	 * @param table Reference to Table
+	 * @param mw Reference to MyWaiter
+	 * @param mc Reference to MyCustomer, still in the line they are waiting in
+	 * @param table Reference to Table, and any joined to it, already taken off the free list
+	 * @return the seating to tell the waiter about
 	 */
-	private void callWaiter(WaiterAgent waiter, MyCustomer mc, Table table) {
-		print(waiter + ", please bring " + mc.cust + " to " + table);
-		waiter.msgPleaseSeatCustomer(mc.cust, table.getTableNumber());
-		synchronized(tables) {
-			for (Table t : tables) {
-				if (t == table) {
-					t.setOccupied(true);
-				}
-			}
+	private Seating assignTable(MyWaiter mw, MyCustomer mc, Table table) {
+		long now = getTimerService().currentTimeMillis();
+		table.setOccupied(true);
+		table.seatedAt = now;
+		seatsOffered += table.capacity;
+		for (Table t : table.joined) {
+			t.setOccupied(true);
+			seatsOffered += t.capacity;
 		}
-		customers.remove(mc);
+		occupiedTables += 1 + table.joined.size();
+		if (door != null) {
+			door.release(mc.cust);
+		}
+		seatsFilled += mc.partySize;
+		seatWaits.get(mc.reservation != null ? SeatingClass.Reservation : mc.seatingClass).record(now - mc.arrivedAt);
+		if (mc.quote >= 0) {
+			quotesChecked++;
+			quoteErrorTotal += Math.abs(now - mc.arrivedAt - mc.quote);
+		}
+		table.waiter = mw;
+		moveWaiter(mw, floor.getTableX(table.tableNumber), floor.getTableY(table.tableNumber));
+		addActiveTables(mw, 1);
+		removeWaitingCustomer(mc);
+		waitingCustomers.remove(mc.cust);
+		if (mc.reservation != null) {
+			mc.reservation.seated = true;
+			table.heldFor = table.nextHolds.poll();
+		}
+		return new Seating(mw, mc, table);
+	}
+
+	/**
+	 * Tells a waiter to seat a customer at a table
+	 * 
+	 * @param s Seating made by assignTable
+	 */
+	private void callWaiter(Seating s) {
+		WaiterAgent waiter = s.waiter.getWaiter();
+		//the table's joined list changes once it is freed, so format it here, not on the logger's thread
+		print("{}, please bring {} (party of {}) to {}", waiter, s.customer.cust, s.customer.partySize, String.valueOf(s.table));
+		waiter.msgPleaseSeatCustomer(s.customer.cust, s.table.getTableNumber());
 	}
 	
 	/**
@@ -295,7 +1217,7 @@ public class HostAgent extends Agent {
 	private void canGoOnBreak(MyWaiter mw) {
 		print(mw.getWaiter() + ", you can go on break.");
 		mw.getWaiter().msgCanGoOnBreak();
-		mw.setState(WaiterState.AboutToGoOnBreak);
+		setWaiterState(mw, WaiterState.AboutToGoOnBreak);
 	}
 	
 	/**
@@ -306,31 +1228,39 @@ public class HostAgent extends Agent {
 	private void cantGoOnBreak(MyWaiter mw) {
 		print(mw.getWaiter() + ", you can't go on break.");
 		mw.getWaiter().msgCantGoOnBreak();
-		mw.setState(WaiterState.OnTheJob);
+		setWaiterState(mw, WaiterState.OnTheJob);
 	}
 	
 	/**
-	 * Tells all waiters that the restaurant has received an order of the specified food
+	 * Tells a walk-in the admission policy did not admit to go away, or to
+	 * come back when there is room
 	 * 
-	 * @param food Name of the food
+	 * @param mc Reference to MyCustomer
 	 */
-	private void notifyWaiters(String food) {
-		synchronized(waiters) {
-			for (MyWaiter mw : waiters) {
-				mw.getWaiter().msgFoodArrived(food);
+	private void turnAway(MyCustomer mc) {
+		if (mc.admission == AdmissionPolicy.Decision.Defer) {
+			print("{}, please come back in {} s", mc.cust, mc.retryDelay / Constants.SECOND);
+			mc.cust.msgComeBackLater(mc.retryDelay);
+		} else {
+			print("{}, sorry, we can't take any more parties", mc.cust);
+			if (door != null) {
+				door.release(mc.cust);
 			}
+			mc.cust.msgNoRoom();
 		}
 	}
-	
+
 	/**
-	 * Tells specified customer that the restaurant is full
+	 * Tells specified customer that the restaurant is full and how long they
+	 * can expect to wait, from their place in line and how fast tables turn
 	 * 
 	 * @param mc Reference to MyCustomer
 	 */
 	private void tellCustomer(MyCustomer mc) {
-		print(mc.cust + ", the restaurant is full");
-		mc.cust.msgRestaurantIsFull();
-		mc.waiting = false;
+		long ahead = Math.max(0, mc.aheadAtJoin - (waitlistDepartures - mc.departuresAtJoin));
+		mc.quote = estimateWait(ahead);
+		print("{}, the restaurant is full; the wait is about {} s", mc.cust, mc.quote / Constants.SECOND);
+		mc.cust.msgRestaurantIsFull(mc.quote);
 	}
 
 	//Inner classes
@@ -341,9 +1271,17 @@ public class HostAgent extends Agent {
 	private class Table {
 		boolean occupied;
 		int tableNumber;
+		final int capacity;
+		MyWaiter waiter; //serving the table while it is occupied
+		ReservationBook.Reservation heldFor; //kept off the free list for this party
+		ArrayDeque<ReservationBook.Reservation> nextHolds = new ArrayDeque<ReservationBook.Reservation>(0); //due while still held for an earlier one
+		List<Table> joined = new ArrayList<Table>(0); //pushed up to this one for a big party
+		long seatedAt; //when the party now at the table sat down
+		double turnTime = DEFAULT_TURN_TIME; //running average of how long parties keep it
 
-		Table(int tableNumber) {
+		Table(int tableNumber, int capacity) {
 			this.tableNumber = tableNumber;
+			this.capacity = capacity;
 		}
 
 		void setOccupied(boolean occupied) {
@@ -355,7 +1293,14 @@ public class HostAgent extends Agent {
 		}
 
 		public String toString() {
-			return "table " + tableNumber;
+			if (joined.isEmpty()) {
+				return "table " + tableNumber;
+			}
+			StringBuilder sb = new StringBuilder("tables ").append(tableNumber);
+			for (Table t : joined) {
+				sb.append('+').append(t.tableNumber);
+			}
+			return sb.toString();
 		}
 		
 		public int getTableNumber() {
@@ -368,26 +1313,63 @@ public class HostAgent extends Agent {
 	 */
 	private class MyCustomer {
 		CustomerAgent cust;
-		boolean waiting;
+		final int partySize;
+		Waitlist.Handle<MyCustomer> place; //in the walk-in waitlist, or
+		ReservationBook.Reservation reservation; //waiting for a reserved table
+		long arrivedAt;
+		long aheadAtJoin; //parties ahead in the waitlist when they joined it
+		long departuresAtJoin; //waitlistDepartures when they joined it
+		long quote = -1; //wait they were quoted, or -1 if they were never told
+		SeatingClass seatingClass = SeatingClass.Regular;
+		long deadline; //when they should have been seated by; their place in the waitlist
+		AdmissionPolicy.Decision admission; //for walk-ins, whether they were let in
+		long retryDelay; //if deferred, how long to stay away
 
-		MyCustomer(CustomerAgent c) {
+		MyCustomer(CustomerAgent c, int partySize) {
 			cust = c;
-			waiting = true;
+			this.partySize = partySize;
 		}
 	}
 	
 	/**
-	 * Contains all information about a waiter relevant to the host
+	 * A customer given a table and a waiter during a seating pass
 	 */
-	private class MyWaiter {
+	private class Seating {
+		final MyWaiter waiter;
+		final MyCustomer customer;
+		final Table table;
+
+		Seating(MyWaiter waiter, MyCustomer customer, Table table) {
+			this.waiter = waiter;
+			this.customer = customer;
+			this.table = table;
+		}
+	}
+	
+	/**
+	 * Contains all information about a waiter relevant to the host. Waiters
+	 * order by the number of tables they are serving right now, then by the
+	 * order they were added, so the first available waiter is the least busy.
+	 */
+	private class MyWaiter implements Comparable<MyWaiter> {
 		WaiterAgent waiter;
 		WaiterState state;
-		int customerCount;
+		int activeTables;
+		final int index;
+		int x, y; //where on the floor he works: his last table, or home until he has one
 
-		MyWaiter(WaiterAgent w) {
+		MyWaiter(WaiterAgent w, int index) {
 			waiter = w;
 			state = WaiterState.OnTheJob;
-			customerCount = 0;
+			activeTables = 0;
+			this.index = index;
+		}
+
+		public int compareTo(MyWaiter o) {
+			if (activeTables != o.activeTables) {
+				return activeTables < o.activeTables ? -1 : 1;
+			}
+			return index < o.index ? -1 : (index == o.index ? 0 : 1);
 		}
 
 		WaiterAgent getWaiter() {
@@ -402,8 +1384,8 @@ public class HostAgent extends Agent {
 			state = w;
 		}
 		
-		void addCustomer() {
-			customerCount++;
+		boolean isOnBreak() {
+			return state == WaiterState.AboutToGoOnBreak || state == WaiterState.OnBreak;
 		}
 	}
 }
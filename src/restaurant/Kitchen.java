@@ -0,0 +1,259 @@
+package restaurant;
+
+import java.util.*;
+
+/**
+ * The cook's stations, each with a number of slots that can cook at once,
+ * e.g. burners on the grill or baskets in the fryer, and a line of dishes
+ * waiting for a slot. Each food is cooked at one station; a food with no
+ * station is cooked without limit. Each station keeps figures on how busy
+ * it was and how long dishes waited for it, so a run shows which station
+ * runs out of slots first.
+ *
+ * Not thread-safe; the cook only touches it from its own thread.
+ */
+public class Kitchen<T> {
+	private final Map<String, Station<T>> stations = new LinkedHashMap<String, Station<T>>();
+	private final Map<String, Station<T>> byFood = new HashMap<String, Station<T>>();
+
+	/**
+	 * Adds a station
+	 *
+	 * @param name Name of the station, e.g. "grill"
+	 * @param slots Number of dishes it can cook at once
+	 * @return the new station
+	 */
+	public Station<T> addStation(String name, int slots) {
+		Station<T> s = new Station<T>(name, slots);
+		stations.put(name, s);
+		return s;
+	}
+
+	/**
+	 * Says which station cooks a food
+	 *
+	 * @param food Name of the food
+	 * @param station Name of a station already added
+	 */
+	public void assign(String food, String station) {
+		Station<T> s = stations.get(station);
+		if (s == null) {
+			throw new IllegalArgumentException("no station " + station);
+		}
+		byFood.put(food, s);
+	}
+
+	/**
+	 * Returns a station by name, or null if there is none
+	 *
+	 * @param name Name of the station
+	 */
+	public Station<T> getStation(String name) {
+		return stations.get(name);
+	}
+
+	/**
+	 * Returns the station that cooks a food, or null if it is cooked without limit
+	 *
+	 * @param food Name of the food
+	 */
+	public Station<T> stationFor(String food) {
+		return byFood.get(food);
+	}
+
+	/**
+	 * Returns every station, in the order they were added
+	 */
+	public Collection<Station<T>> getStations() {
+		return Collections.unmodifiableCollection(stations.values());
+	}
+
+	/**
+	 * Returns the station whose slots have been busy the most, or null if
+	 * there are no stations
+	 *
+	 * @param now Current time on the cook's TimerService clock
+	 */
+	public Station<T> getBusiest(long now) {
+		Station<T> busiest = null;
+		for (Station<T> s : stations.values()) {
+			if (busiest == null || s.getBusyTime(now) * busiest.slots > busiest.getBusyTime(now) * s.slots) {
+				busiest = s;
+			}
+		}
+		return busiest;
+	}
+
+	/**
+	 * One station in the kitchen
+	 */
+	public static class Station<T> {
+		private final String name;
+		private int slots;
+		private int busy = 0;
+		private final ArrayDeque<T> queue = new ArrayDeque<T>();
+		//When each dish in the queue joined it, in the same order
+		private final ArrayDeque<Long> queuedAt = new ArrayDeque<Long>();
+
+		//Slot-milliseconds spent cooking up to lastChange
+		private long busyTime = 0;
+		private long lastChange = 0;
+		private long started = 0;
+		private long queued = 0;
+		private long queueWaitTotal = 0;
+		private int maxQueue = 0;
+
+		Station(String name, int slots) {
+			this.name = name;
+			this.slots = Math.max(1, slots);
+		}
+
+		/**
+		 * Returns the name of the station
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the number of dishes the station can cook at once
+		 */
+		public int getSlots() {
+			return slots;
+		}
+
+		/**
+		 * Sets the number of dishes the station can cook at once. Dishes
+		 * already cooking finish; queued ones start as slots come free.
+		 *
+		 * @param slots Number of slots, at least 1
+		 */
+		public void setSlots(int slots) {
+			this.slots = Math.max(1, slots);
+		}
+
+		/**
+		 * Takes a slot for a dish if one is free, or else puts the dish at
+		 * the end of the station's line
+		 *
+		 * @param dish Dish to cook
+		 * @param now Current time on the cook's TimerService clock
+		 * @return true if the dish can start cooking now, false if it was queued
+		 */
+		public boolean start(T dish, long now) {
+			if (busy < slots && queue.isEmpty()) {
+				take(now);
+				return true;
+			}
+			queue.add(dish);
+			queuedAt.add(now);
+			queued++;
+			maxQueue = Math.max(maxQueue, queue.size());
+			return false;
+		}
+
+		/**
+		 * Takes a slot for the dish at the front of the line, if there is
+		 * one and a slot is free
+		 *
+		 * @param now Current time on the cook's TimerService clock
+		 * @return the dish to start cooking, or null
+		 */
+		public T next(long now) {
+			if (busy >= slots || queue.isEmpty()) {
+				return null;
+			}
+			take(now);
+			queueWaitTotal += now - queuedAt.poll();
+			return queue.poll();
+		}
+
+		/**
+		 * Gives back the slot of a dish that has finished cooking
+		 *
+		 * @param now Current time on the cook's TimerService clock
+		 */
+		public void finish(long now) {
+			account(now);
+			busy--;
+		}
+
+		private void take(long now) {
+			account(now);
+			busy++;
+			started++;
+		}
+
+		private void account(long now) {
+			busyTime += busy * (now - lastChange);
+			lastChange = now;
+		}
+
+		/**
+		 * Returns the number of slots cooking now
+		 */
+		public int getBusySlots() {
+			return busy;
+		}
+
+		/**
+		 * Returns the number of dishes waiting for a slot
+		 */
+		public int getQueueLength() {
+			return queue.size();
+		}
+
+		/**
+		 * Returns the most dishes that have waited for a slot at once
+		 */
+		public int getMaxQueueLength() {
+			return maxQueue;
+		}
+
+		/**
+		 * Returns the number of dishes the station has started cooking
+		 */
+		public long getStartedCount() {
+			return started;
+		}
+
+		/**
+		 * Returns the number of dishes that had to wait for a slot
+		 */
+		public long getQueuedCount() {
+			return queued;
+		}
+
+		/**
+		 * Returns how long dishes that started cooking waited for a slot,
+		 * averaged over all of them, in milliseconds
+		 */
+		public long getMeanQueueWait() {
+			return started == 0 ? 0 : queueWaitTotal / started;
+		}
+
+		/**
+		 * Returns the slot-milliseconds the station has spent cooking
+		 *
+		 * @param now Current time on the cook's TimerService clock
+		 */
+		public long getBusyTime(long now) {
+			return busyTime + busy * Math.max(0, now - lastChange);
+		}
+
+		/**
+		 * Returns the share of the station's slots that were cooking over a
+		 * span of time that covers all its cooking so far
+		 *
+		 * @param since Start of the span, e.g. when the restaurant opened
+		 * @param now Current time on the cook's TimerService clock
+		 */
+		public double getUtilization(long since, long now) {
+			return now <= since ? 0 : (double)getBusyTime(now) / ((long)slots * (now - since));
+		}
+
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package restaurant;
+
+import agent.Agent;
+import agent.AgentRegistry;
+import agent.RingLogger;
+import agent.Simulation;
+import restaurant.gui.CookGui;
+import restaurant.gui.HeadlessCustomerGui;
+import restaurant.gui.HeadlessWaiterGui;
+
+import java.util.*;
+
+/**
+ * Command-line version of the restaurant.  Runs an evening of service in a
+ * Simulation against a virtual clock, so it finishes in a fraction of a
+ * second and the same seed always gives the same evening.  Customers come
+ * in parties of one to six, and the host may join tables for big parties.
+ *
+ * Usage: Main [customers] [waiters] [hours] [seed] [tables]
+ *
+ * Admission control is off unless set with -Drestaurant.maxQueue=parties,
+ * -Drestaurant.maxWait=seconds, or -Drestaurant.arrivalRate=parties per
+ * minute with -Drestaurant.burst=parties.  -Drestaurant.sections=n splits
+ * the tables and waiters into n sections, each with its own host, behind a
+ * FrontDoor.  -Drestaurant.slots.grill=n (or fryer, salad, oven) sets how
+ * many dishes a kitchen station cooks at once.
+ */
+public class Main {
+
+	static final long PATIENCE_MIN = 2 * agent.Constants.MINUTE;
+	static final long PATIENCE_MAX = 10 * agent.Constants.MINUTE;
+
+	/**
+	 * Don't construct.
+	 */
+	private Main() {
+	}
+
+	public static void main(String[] args) {
+		int numCustomers = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int numWaiters = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		long evening = (args.length > 2 ? Long.parseLong(args[2]) : 4) * agent.Constants.HOUR;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		int numTables = args.length > 4 ? Integer.parseInt(args[4]) : HostAgent.NTABLES;
+
+		Simulation sim = new Simulation(seed);
+		List<Agent> agents = new ArrayList<Agent>();
+
+		//every section needs a table and a waiter
+		int numSections = Math.max(1, Math.min(Math.min(numTables, numWaiters), Integer.getInteger("restaurant.sections", 1)));
+		List<HostAgent> sections = new ArrayList<HostAgent>();
+		for (int s = 0; s < numSections; s++) {
+			//spread the tables as evenly as they go
+			int tables = numTables / numSections + (s < numTables % numSections ? 1 : 0);
+			HostAgent host = new HostAgent(numSections == 1 ? "Sarah" : "Host " + (s + 1), tables);
+			host.setJoinTables(true);
+			host.setAdmissionPolicy(admissionPolicy());
+			sections.add(host);
+			agents.add(host);
+		}
+		FrontDoor door = new FrontDoor(sections);
+		CookAgent cook = new CookAgent("John");
+		for (Kitchen.Station<?> station : cook.getKitchen().getStations()) {
+			station.setSlots(Integer.getInteger("restaurant.slots." + station.getName(), station.getSlots()));
+		}
+		CashierAgent cashier = new CashierAgent("Jake");
+		agents.add(cook);
+		agents.add(cashier);
+
+		CookGui cookGui = new CookGui(null);
+		cook.setGui(cookGui);
+		//enough stock that the cook never runs every market dry
+		int stock = Math.max(50, numCustomers);
+		for (int i = 1; i <= 3; i++) {
+			MarketAgent m = new MarketAgent("Market " + i, cook, cashier, stock, stock, stock, stock);
+			cook.addMarket(m);
+			agents.add(m);
+		}
+
+		List<HeadlessWaiterGui> waiterGuis = new ArrayList<HeadlessWaiterGui>();
+		for (int i = 1; i <= numWaiters; i++) {
+			//waiters are dealt out to the sections in turn
+			HostAgent host = sections.get((i - 1) % numSections);
+			WaiterAgent w = new WaiterAgent("Waiter " + i);
+			w.setHost(host);
+			w.setCook(cook);
+			w.setCashier(cashier);
+			HeadlessWaiterGui g = new HeadlessWaiterGui(w, (i - 1) / numSections + 1, host.getFloorPlan());
+			w.setGui(g);
+			waiterGuis.add(g);
+			w.setGui(cookGui);
+			agents.add(w);
+			host.addWaiter(w);
+		}
+
+		final List<HeadlessCustomerGui> customers = new ArrayList<HeadlessCustomerGui>();
+		int[] partySizes = new int[numCustomers];
+		for (int i = 1; i <= numCustomers; i++) {
+			partySizes[i - 1] = partySize(sim.getRandom());
+			CustomerAgent c = new CustomerAgent("Customer " + i, partySizes[i - 1]);
+			//meals here take about a minute; each customer waits two to ten for a table
+			c.setPatience(PATIENCE_MIN + (long)(sim.getRandom().nextDouble() * (PATIENCE_MAX - PATIENCE_MIN)));
+			final HeadlessCustomerGui g = new HeadlessCustomerGui(c);
+			c.setHost(door);
+			c.setCashier(cashier);
+			c.setGui(g);
+			agents.add(c);
+			customers.add(g);
+		}
+
+		for (Agent a : agents) {
+			sim.add(a);
+			a.startThread();
+		}
+
+		//customers show up at random times over the first half of the evening;
+		//one in five books a table for the time they arrive, one in ten is a VIP
+		for (int i = 0; i < customers.size(); i++) {
+			final HeadlessCustomerGui g = customers.get(i);
+			long arrival = (long)(sim.getRandom().nextDouble() * evening / 2);
+			if (i % 5 == 4) {
+				door.msgMakeReservation("Customer " + (i + 1), partySizes[i], arrival);
+			} else if (i % 10 == 2) {
+				door.addVip("Customer " + (i + 1));
+			}
+			sim.schedule(new Runnable() {
+				public void run() {
+					g.setHungry(0);
+				}
+			}, arrival);
+		}
+
+		long start = System.currentTimeMillis();
+		sim.runUntil(evening);
+		long elapsed = System.currentTimeMillis() - start;
+		RingLogger.getDefault().flush();
+
+		int served = 0;
+		for (HeadlessCustomerGui g : customers) {
+			if (g.hasLeft() && g.wasSeated()) {
+				served++;
+			}
+		}
+		long covers = door.getCoversSeated();
+		System.out.println("Simulated " + sim.currentTimeMillis() / agent.Constants.MINUTE + " minutes in " + elapsed + " ms ("
+				+ sim.getEventCount() + " events): " + served + " of " + numCustomers + " customers served, cashier has $" + cashier.getCash());
+		System.out.println(covers + " covers, " + Math.round(covers * agent.Constants.HOUR / (double)sim.currentTimeMillis()) + " per hour, "
+				+ Math.round(door.getSeatUtilization() * 100) + "% of seats at occupied tables filled");
+		long walked = 0;
+		for (HeadlessWaiterGui g : waiterGuis) {
+			walked += g.getDistanceWalked();
+		}
+		System.out.println(door.getRenegedCount() + " gave up waiting; waiters walked " + walked + " px; tables turn in " + door.getAverageTurnTime() / agent.Constants.SECOND
+				+ " s on average, quoted waits were off by " + door.getMeanQuoteError() / agent.Constants.SECOND + " s on average");
+		System.out.println(door.getRejectedCount() + " turned away, " + door.getDeferredCount() + " asked to come back; waited for a table "
+				+ door.getSeatWaitPercentile(50) / agent.Constants.SECOND + " s at p50, " + door.getSeatWaitPercentile(99) / agent.Constants.SECOND + " s at p99");
+		for (HostAgent.SeatingClass c : HostAgent.SeatingClass.values()) {
+			System.out.print((c.ordinal() == 0 ? "p99 by class:" : ",") + " " + c + " " + door.getSeatWaitPercentile(c, 99) / agent.Constants.SECOND + " s");
+		}
+		System.out.println();
+		long now = sim.currentTimeMillis();
+		String sep = "Kitchen:";
+		for (Kitchen.Station<?> station : cook.getKitchen().getStations()) {
+			System.out.print(sep + " " + station + " x" + station.getSlots() + " " + Math.round(station.getUtilization(0, now) * 100)
+					+ "% busy, " + station.getMeanQueueWait() / agent.Constants.SECOND + " s queued");
+			sep = ",";
+		}
+		System.out.println("; the " + cook.getKitchen().getBusiest(now) + " is busiest");
+		System.out.print(AgentRegistry.report(8));
+	}
+
+	/**
+	 * Returns the admission policy set by system properties
+	 */
+	private static AdmissionPolicy admissionPolicy() {
+		AdmissionPolicy policy = new AdmissionPolicy();
+		Integer maxQueue = Integer.getInteger("restaurant.maxQueue");
+		if (maxQueue != null) {
+			policy.setMaxQueue(maxQueue);
+		}
+		Long maxWait = Long.getLong("restaurant.maxWait");
+		if (maxWait != null) {
+			policy.setMaxWait(maxWait * agent.Constants.SECOND);
+		}
+		String rate = System.getProperty("restaurant.arrivalRate");
+		if (rate != null) {
+			policy.setArrivalRate(Double.parseDouble(rate), Integer.getInteger("restaurant.burst", 1));
+		}
+		return policy;
+	}
+
+	/**
+	 * Returns a party size drawn from a typical evening's mix: mostly twos,
+	 * then fours, some ones and threes, the odd five or six
+	 *
+	 * @param random Simulation's random number generator
+	 */
+	private static int partySize(Random random) {
+		double x = random.nextDouble();
+		if (x < 0.15) {
+			return 1;
+		}
+		if (x < 0.60) {
+			return 2;
+		}
+		if (x < 0.75) {
+			return 3;
+		}
+		if (x < 0.95) {
+			return 4;
+		}
+		return 5 + random.nextInt(2);
+	}
+}
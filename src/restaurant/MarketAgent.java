@@ -16,7 +16,6 @@ public class MarketAgent extends Agent implements Market {
 	private String name;
 	private CookAgent cook;
 	private CashierAgent cashier;
-	private Timer timer = new Timer();
 	private int cash;
 	
 	Food steak;
@@ -146,15 +145,19 @@ public class MarketAgent extends Agent implements Market {
 	 * 
 	 * @param o Reference to the Order
 	 */
-	private void produceOrder(Order o) {
+	private void produceOrder(final Order o) {
 		print("Here is what I can fulfill: ");
 		for (ItemOrder io : o.items) {
-			print(io.getAmount() + " " + io.getFood() + "s");
+			print("{} {}s", io.getAmount(), io.getFood());
 		}
-		cook.msgHereIsWhatICanFulfill(o.items);
+		send(new Runnable() {
+			public void run() {
+				cook.msgHereIsWhatICanFulfill(o.items);
+			}
+		});
 		if (!o.items.isEmpty()) {
 			o.setState(OrderState.ProducingOrder);
-			timer.schedule(new ProducingTimerTask(o) {
+			getTimerService().schedule(new ProducingTimerTask(o) {
 				@Override
 				public void run() {
 					order.setState(OrderState.Ready);
@@ -176,16 +179,21 @@ public class MarketAgent extends Agent implements Market {
 	 * 
 	 * @param o Reference to the Order
 	 */
-	private void deliverOrder(Order o) {
+	private void deliverOrder(final Order o) {
 		int bill = 0;
 		print("Here is your order: ");
 		for (ItemOrder io : o.items) {
-			print(io.getAmount() + " " + io.getFood() + "s");
+			print("{} {}s", io.getAmount(), io.getFood());
 			bill += foodPrices.get(io.getFood())*io.getAmount();
 		}
-		cook.msgOrderDelivered(o.items);
-		print("Here is the bill: $" + bill);
-		cashier.msgHereIsBill(bill, this);
+		print("Here is the bill: ${}", bill);
+		final int total = bill;
+		send(new Runnable() {
+			public void run() {
+				cook.msgOrderDelivered(o.items);
+				cashier.msgHereIsBill(total, MarketAgent.this);
+			}
+		});
 		o.setState(OrderState.Finished);
 	}
 	
@@ -229,16 +237,14 @@ public class MarketAgent extends Agent implements Market {
 	}
 	
 	/**
-	 * TimerTask necessary for the order timer
+	 * Task run by the order timer
 	 */
-	private class ProducingTimerTask extends TimerTask {
+	private abstract class ProducingTimerTask implements Runnable {
 		Order order;
 		
 		ProducingTimerTask(Order o) {
 			order = o;
 		}
-		
-		public void run() {};
 	}
 }
 
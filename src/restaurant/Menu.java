@@ -75,4 +75,13 @@ public class Menu {
 		int rand = (int)(Math.random() * items.size());
 		return items.get(rand);
 	}
+	
+	/**
+	 * Returns the name of a random food item from the menu
+	 * 
+	 * @param random Source of random numbers
+	 */
+	public String randomItem(Random random) {
+		return items.get(random.nextInt(items.size()));
+	}
 }
@@ -0,0 +1,220 @@
+package restaurant;
+
+import java.util.*;
+
+/**
+ * The host's book of table reservations. Each table keeps its bookings in a
+ * TreeMap keyed by start time, and bookings on one table never overlap, so
+ * whether a table is free over any stretch of the evening is answered by
+ * looking at the two bookings around it: O(log n) per table however many
+ * reservations have been taken. Tables may seat different numbers, and a
+ * party is booked at the smallest table that fits it.
+ *
+ * Times are in milliseconds on the host's TimerService clock. Not
+ * thread-safe; the host only touches it from its own thread.
+ */
+public class ReservationBook {
+	private final List<TreeMap<Long, Reservation>> tables;
+	private final int[] capacities;
+	private final Map<String, Reservation> byName = new HashMap<String, Reservation>();
+	private int size = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacities Number of seats at each table, by table number - 1
+	 */
+	public ReservationBook(int[] capacities) {
+		this.capacities = capacities.clone();
+		tables = new ArrayList<TreeMap<Long, Reservation>>(capacities.length);
+		for (int i = 0; i < capacities.length; i++) {
+			tables.add(new TreeMap<Long, Reservation>());
+		}
+	}
+
+	/**
+	 * Books the smallest table that seats the party and is free for the whole
+	 * stretch, the lowest-numbered one among tables of the same size
+	 *
+	 * @param name Name the reservation is under; replaces any earlier one
+	 * @param partySize Number of people in the party
+	 * @param start Time the party is due
+	 * @param duration How long to keep the table for them
+	 * @return the reservation, or null if no table that fits is free for the whole stretch
+	 */
+	public Reservation book(String name, int partySize, long start, long duration) {
+		long end = start + Math.max(1, duration);
+		Reservation old = lift(name);
+		int best = 0;
+		for (int table = 1; table <= tables.size(); table++) {
+			int seats = capacities[table - 1];
+			if (seats >= partySize && (best == 0 || seats < capacities[best - 1]) && isFree(table, start, end)) {
+				best = table;
+			}
+		}
+		return settle(name, best, start, end, old);
+	}
+
+	/**
+	 * Books a particular table if it is free for the whole stretch
+	 *
+	 * @param name Name the reservation is under; replaces any earlier one
+	 * @param table Table number
+	 * @param start Time the party is due
+	 * @param duration How long to keep the table for them
+	 * @return the reservation, or null if the table is taken at some point in the stretch
+	 */
+	public Reservation bookTable(String name, int table, long start, long duration) {
+		long end = start + Math.max(1, duration);
+		Reservation old = lift(name);
+		return settle(name, isFree(table, start, end) ? table : 0, start, end, old);
+	}
+
+	/**
+	 * Takes the booking already under a name off its table while a new one
+	 * is looked for, so it does not stand in the way of its own replacement
+	 *
+	 * @return the booking, or null if there is none
+	 */
+	private Reservation lift(String name) {
+		Reservation old = byName.get(name);
+		if (old != null) {
+			tables.get(old.table - 1).remove(old.start);
+		}
+		return old;
+	}
+
+	/**
+	 * Books the table found for a name, cancelling the booking lifted from
+	 * it, or puts that booking back if no table was found
+	 *
+	 * @param table Table number, or 0 if none is free
+	 * @param old Booking lifted by lift(), or null
+	 * @return the new reservation, or null
+	 */
+	private Reservation settle(String name, int table, long start, long end, Reservation old) {
+		if (table == 0) {
+			if (old != null) {
+				tables.get(old.table - 1).put(old.start, old);
+			}
+			return null;
+		}
+		if (old != null) {
+			old.cancelled = true;
+			size--;
+		}
+		Reservation r = new Reservation(name, table, start, end);
+		tables.get(table - 1).put(start, r);
+		byName.put(name, r);
+		size++;
+		return r;
+	}
+
+	/**
+	 * Checks whether a table has no booking overlapping [start, end)
+	 *
+	 * @param table Table number
+	 * @param start Start of the stretch
+	 * @param end End of the stretch, exclusive
+	 * @return true if the table is free for the whole stretch, false otherwise
+	 */
+	public boolean isFree(int table, long start, long end) {
+		TreeMap<Long, Reservation> book = tables.get(table - 1);
+		Map.Entry<Long, Reservation> before = book.floorEntry(start);
+		if (before != null && before.getValue().end > start) {
+			return false;
+		}
+		Map.Entry<Long, Reservation> after = book.ceilingEntry(start);
+		return after == null || after.getKey() >= end;
+	}
+
+	/**
+	 * Counts the tables seating at least partySize that are free for the whole of [start, end)
+	 */
+	public int countFree(int partySize, long start, long end) {
+		int free = 0;
+		for (int table = 1; table <= tables.size(); table++) {
+			if (capacities[table - 1] >= partySize && isFree(table, start, end)) {
+				free++;
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Returns the reservation under the given name, or null if there is none
+	 */
+	public Reservation find(String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * Takes a reservation out of the book
+	 *
+	 * @return true if it was removed, false if it was not in the book
+	 */
+	public boolean cancel(Reservation r) {
+		if (byName.get(r.name) == r) {
+			byName.remove(r.name);
+		}
+		return remove(r);
+	}
+
+	/**
+	 * Returns the number of reservations in the book
+	 */
+	public int size() {
+		return size;
+	}
+
+	private boolean remove(Reservation r) {
+		TreeMap<Long, Reservation> book = tables.get(r.table - 1);
+		if (book.get(r.start) != r) {
+			return false;
+		}
+		book.remove(r.start);
+		r.cancelled = true;
+		size--;
+		return true;
+	}
+
+	/**
+	 * A table booked for one party over [start, end)
+	 */
+	public static class Reservation {
+		final String name;
+		final int table;
+		final long start;
+		final long end;
+		boolean cancelled = false;
+		boolean arrived = false;
+		boolean seated = false;
+
+		Reservation(String name, int table, long start, long end) {
+			this.name = name;
+			this.table = table;
+			this.start = start;
+			this.end = end;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getTable() {
+			return table;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public String toString() {
+			return name + " at table " + table;
+		}
+	}
+}
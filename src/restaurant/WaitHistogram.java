@@ -0,0 +1,116 @@
+package restaurant;
+
+import java.util.*;
+
+/**
+ * Counts of how long parties waited, in milliseconds, kept in a fixed
+ * number of buckets however many are recorded. Waits under SUB_BUCKETS ms
+ * each have a bucket of their own; longer ones share buckets SUB_BUCKETS
+ * to a power of two, so a percentile read back is at most about 3% above
+ * the true one and never above the longest wait recorded. Recording is
+ * O(1) and reading a percentile walks the buckets once, O(BUCKETS),
+ * without copying or sorting anything.
+ *
+ * Not thread-safe; the host only touches it from its own thread, and
+ * others read it once the host is idle.
+ */
+public class WaitHistogram {
+	//Buckets for each power of two, as a power of two, and how many there are in all
+	static final int SUB_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long max = 0;
+
+	/**
+	 * Records one wait
+	 *
+	 * @param wait Wait in milliseconds; below 0 counts as 0
+	 */
+	public void record(long wait) {
+		wait = Math.max(0, wait);
+		counts[bucket(wait)]++;
+		count++;
+		max = Math.max(max, wait);
+	}
+
+	/**
+	 * Returns the number of waits recorded
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the longest wait recorded, or 0 if none were
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the wait at the given percentile, or 0 if none were recorded
+	 *
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public long getPercentile(double percentile) {
+		return percentile(Collections.singletonList(this), percentile);
+	}
+
+	/**
+	 * Returns the wait at the given percentile of several histograms taken
+	 * together, or 0 if none of them has any waits
+	 *
+	 * @param parts Histograms to read
+	 * @param percentile Percentile from 0 to 100, e.g. 99
+	 */
+	public static long percentile(List<WaitHistogram> parts, double percentile) {
+		long total = 0;
+		long max = 0;
+		for (WaitHistogram h : parts) {
+			total += h.count;
+			max = Math.max(max, h.max);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, Math.min(total, (long)Math.ceil(percentile / 100 * total)));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			for (WaitHistogram h : parts) {
+				seen += h.counts[b];
+			}
+			if (seen >= rank) {
+				return Math.min(max, highest(b));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the bucket a wait is counted in
+	 */
+	static int bucket(long wait) {
+		if (wait < SUB_BUCKETS) {
+			return (int)wait;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(wait);
+		int sub = (int)(wait >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the longest wait counted in a bucket
+	 */
+	static long highest(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long lowest = (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+		return lowest + (1L << (exp - SUB_BITS)) - 1;
+	}
+}
@@ -12,9 +12,14 @@ import java.util.concurrent.Semaphore;
 /**
  * Restaurant Waiter Agent
  */
-public class WaiterAgent extends Agent implements Waiter {
-	public List<MyCustomer> customers
-	= new ArrayList<MyCustomer>();
+public class WaiterAgent extends Agent implements Waiter, FoodAvailability.Subscriber {
+	//Only touched on the waiter's own thread; messages are posted to its mailbox.
+	//Customers being served, looked up by agent and by table, and bucketed by state
+	//so each scheduler rule finds its next customer without scanning. A customer
+	//who reaches DoingNothing is retired from all of them.
+	private Map<CustomerAgent, MyCustomer> customers = new HashMap<CustomerAgent, MyCustomer>();
+	private Map<Integer, MyCustomer> customersByTable = new HashMap<Integer, MyCustomer>();
+	private Map<CustomerState, Set<MyCustomer>> customersByState = new EnumMap<CustomerState, Set<MyCustomer>>(CustomerState.class);
 	HostAgent host;
 	CookAgent cook;
 	CashierAgent cashier;
@@ -26,7 +31,6 @@ public class WaiterAgent extends Agent implements Waiter {
 	private Semaphore atCook = new Semaphore(0,true);
 	private boolean returningHome = false;
 	private Menu menu;
-	Timer timer = new Timer();
 	
 	Map<String, Integer> prices = new HashMap<String, Integer>();
 	
@@ -59,6 +63,10 @@ public class WaiterAgent extends Agent implements Waiter {
 		menu.addItem("chicken", prices.get("chicken"));
 		menu.addItem("salad", prices.get("salad"));
 		menu.addItem("pizza", prices.get("pizza"));
+		
+		for (CustomerState s : CustomerState.values()) {
+			customersByState.put(s, new LinkedHashSet<MyCustomer>());
+		}
 	}
 	
 	/**
@@ -130,15 +138,10 @@ public class WaiterAgent extends Agent implements Waiter {
 	/**
 	 * Checks if the Waiter is done serving all his Customers
 	 * 
-	 * @return true if all CustomerAgents in Waiter's list are DoingNothing, false otherwise
+	 * @return true if the Waiter has no Customers left to serve, false otherwise
 	 */
 	public boolean doneServingCustomers() {
-		for (MyCustomer mc : customers) {
-			if (mc.getState() != CustomerState.DoingNothing) {
-				return false;
-			}
-		}
-		return true;
+		return customers.isEmpty();
 	}
 	
 	/**
@@ -171,33 +174,45 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * Sets waiter's state to "WantToGoOnBreak"
 	 */
 	public void msgWantToGoOnBreak() {
-		state = WaiterState.WantToGoOnBreak;
-		stateChanged();
+		post(new Runnable() {
+			public void run() {
+				state = WaiterState.WantToGoOnBreak;
+			}
+		});
 	}
 	
 	/**
 	 * Tells the waiter that he can go on break and sets his state to "AboutToGoOnBreak"
 	 */
 	public void msgCanGoOnBreak() {
-		state = WaiterState.AboutToGoOnBreak;
-		stateChanged();
+		post(new Runnable() {
+			public void run() {
+				state = WaiterState.AboutToGoOnBreak;
+			}
+		});
 	}
 	
 	/**
 	 * Tells the waiter that he can't go on break and sets his state to "OnTheJob"
 	 */
 	public void msgCantGoOnBreak() {
-		state = WaiterState.OnTheJob;
-		waiterGui.setCBEnabled();
-		stateChanged();
+		post(new Runnable() {
+			public void run() {
+				state = WaiterState.OnTheJob;
+				waiterGui.setCBEnabled();
+			}
+		});
 	}
 	
 	/**
 	 * Sets waiter's state to "GoingOffBreak"
 	 */
 	public void msgGoOffBreak() {
-		state = WaiterState.GoingOffBreak;
-		stateChanged();
+		post(new Runnable() {
+			public void run() {
+				state = WaiterState.GoingOffBreak;
+			}
+		});
 	}
 	
 	/**
@@ -206,17 +221,18 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param cust Reference to CustomerAgent
 	 * @param tableNumber Number of the assigned table
 	 */
-	public void msgPleaseSeatCustomer(CustomerAgent cust, int tableNumber) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == cust) {
+	public void msgPleaseSeatCustomer(final CustomerAgent cust, final int tableNumber) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(cust);
+				if (mc == null) {
+					mc = new MyCustomer(cust, tableNumber);
+				} else {
+					mc.setTable(tableNumber);
+				}
 				mc.setState(CustomerState.Waiting);
-				mc.setTable(tableNumber);
-				stateChanged();
-				return;
 			}
-		}
-		customers.add(new MyCustomer(cust, tableNumber, CustomerState.Waiting));
-		stateChanged();
+		});
 	}
 	
 	/**
@@ -224,15 +240,16 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * 
 	 * @param cust Reference to CustomerAgent
 	 */
-	public void msgIWantToLeave(CustomerAgent cust) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == cust) {
-				print(mc.getCust() + " leaving table " + mc.getTable());
-				mc.setState(CustomerState.Leaving);
-				stateChanged();
-				return;
+	public void msgIWantToLeave(final CustomerAgent cust) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(cust);
+				if (mc != null) {
+					print("{} leaving table {}", mc.getCust(), mc.getTable());
+					mc.setState(CustomerState.Leaving);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -240,13 +257,15 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * 
 	 * @param cust Reference to CustomerAgent
 	 */
-	public void msgReadyToOrder(CustomerAgent cust) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == cust) {
-				mc.setState(CustomerState.AskedToOrder);
-				stateChanged();
+	public void msgReadyToOrder(final CustomerAgent cust) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(cust);
+				if (mc != null) {
+					mc.setState(CustomerState.AskedToOrder);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -255,14 +274,16 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param cust Reference to CustomerAgent
 	 * @param choice Name of customer's food choice
 	 */
-	public void msgHereIsChoice(CustomerAgent cust, String choice) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == cust) {
-				mc.setState(CustomerState.Ordered);
-				mc.setChoice(choice);
-				stateChanged();
+	public void msgHereIsChoice(final CustomerAgent cust, final String choice) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(cust);
+				if (mc != null) {
+					mc.setState(CustomerState.Ordered);
+					mc.setChoice(choice);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -271,14 +292,19 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param choice Name of the food
 	 * @param table Number of the waiter's current table
 	 */
-	public void msgOutOfFood(String choice, int table) {
-		menu.removeItem(choice);
-		for (MyCustomer mc : customers) {
-			if (mc.getTable() == table) {
-				mc.setState(CustomerState.MustReorder);
-				stateChanged();
+	public void msgOutOfFood(final String choice, final int table) {
+		post(new Runnable() {
+			public void run() {
+				//hear about the restock only if it hasn't already happened
+				if (cook.getFoodAvailability().subscribe(choice, WaiterAgent.this)) {
+					menu.removeItem(choice);
+				}
+				MyCustomer mc = customersByTable.get(table);
+				if (mc != null) {
+					mc.setState(CustomerState.MustReorder);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -287,13 +313,15 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param choice Name of the customer's food choice
 	 * @param tableNum Number of the customer's table
 	 */
-	public void msgOrderDone(String choice, int tableNum) {
-		for (MyCustomer mc : customers) {
-			if (mc.getTable() == tableNum && mc.getChoice() == choice) {
-				mc.setState(CustomerState.OrderDone);
-				stateChanged();
+	public void msgOrderDone(final String choice, final int tableNum) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customersByTable.get(tableNum);
+				if (mc != null && mc.getChoice() == choice) {
+					mc.setState(CustomerState.OrderDone);
+				}
 			}
-		}
+		});
 	}
 
 	/**
@@ -301,25 +329,31 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * 
 	 * @param cust Reference to the CustomerAgent
 	 */
-	public void msgDoneEating(CustomerAgent cust) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == cust) {
-				mc.setState(CustomerState.WaitingForCheck);
-				stateChanged();
+	public void msgDoneEating(final CustomerAgent cust) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(cust);
+				if (mc != null) {
+					mc.setState(CustomerState.WaitingForCheck);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
-	 * Tells waiter that the restaurant is no longer out of the specified food and adds that food to the menu
+	 * Tells waiter that the restaurant is no longer out of the specified food and adds that food to the menu.
+	 * Sent once per sold-out food the waiter subscribed to in msgOutOfFood
 	 * 
 	 * @param food Name of the food
 	 */
-	public void msgFoodArrived(String food) {
-		if (!menu.checkItem(food)) {
-			menu.addItem(food, prices.get(food));
-			stateChanged();
-		}
+	public void msgFoodArrived(final String food) {
+		post(new Runnable() {
+			public void run() {
+				if (!menu.checkItem(food)) {
+					menu.addItem(food, prices.get(food));
+				}
+			}
+		});
 	}
 	
 	/**
@@ -328,13 +362,15 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param c Reference to Customer
 	 * @param charge Integer amount that the customer owes
 	 */
-	public void msgHereIsCheck(Customer c, int charge) {
-		for (MyCustomer mc : customers) {
-			if (mc.getCust() == c) {
-				mc.setCharge(charge);
-				stateChanged();
+	public void msgHereIsCheck(final Customer c, final int charge) {
+		post(new Runnable() {
+			public void run() {
+				MyCustomer mc = customers.get(c);
+				if (mc != null) {
+					mc.setCharge(charge);
+				}
 			}
-		}
+		});
 	}
 	
 	/**
@@ -376,71 +412,52 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * Scheduler.  Determine what action is called for, and do it.
 	 */
 	public boolean pickAndExecuteAnAction() {
-		try {
-			if (state == WaiterState.WantToGoOnBreak) {
-				wantToGoOnBreak();
-				return true;
-			}
-			if (state == WaiterState.AboutToGoOnBreak){
-				if (doneServingCustomers()) {
-					goOnBreak();
-					return true;
-				}
-			}
-			if (state == WaiterState.GoingOffBreak){
-				goOffBreak();
+		MyCustomer mc;
+		if (state == WaiterState.WantToGoOnBreak) {
+			wantToGoOnBreak();
+			return true;
+		}
+		if (state == WaiterState.AboutToGoOnBreak){
+			if (doneServingCustomers()) {
+				goOnBreak();
 				return true;
 			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.ReadyToEat) {
-					deliverFood(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.OrderDone) {
-					retrieveOrder(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.Waiting) {
-					seatCustomer(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.AskedToOrder) {
-					takeOrder(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.Ordered) {
-					giveOrderToCook(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.MustReorder){
-					askToReorder(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.WaitingForCheck){
-					giveCheckToCustomer(mc);
-					return true;
-				}
-			}
-			for (MyCustomer mc : customers) {
-				if (mc.getState() == CustomerState.Leaving){
-					notifyHost(mc);
-					return true;
-				}
-			}
-		} catch (ConcurrentModificationException e) {
-			return false;
+		}
+		if (state == WaiterState.GoingOffBreak){
+			goOffBreak();
+			return true;
+		}
+		if ((mc = next(CustomerState.ReadyToEat)) != null) {
+			deliverFood(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.OrderDone)) != null) {
+			retrieveOrder(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.Waiting)) != null) {
+			seatCustomer(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.AskedToOrder)) != null) {
+			takeOrder(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.Ordered)) != null) {
+			giveOrderToCook(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.MustReorder)) != null) {
+			askToReorder(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.WaitingForCheck)) != null) {
+			giveCheckToCustomer(mc);
+			return true;
+		}
+		if ((mc = next(CustomerState.Leaving)) != null) {
+			notifyHost(mc);
+			return true;
 		}
 
 		return false;
@@ -449,6 +466,17 @@ public class WaiterAgent extends Agent implements Waiter {
 		//and wait.
 	}
 
+	/**
+	 * Returns the customer who has been in the given state longest
+	 * 
+	 * @param s State to look for
+	 * @return that customer, or null if no customer is in the state
+	 */
+	private MyCustomer next(CustomerState s) {
+		Set<MyCustomer> bucket = customersByState.get(s);
+		return bucket.isEmpty() ? null : bucket.iterator().next();
+	}
+
 	// Actions
 	
 	/**
@@ -470,7 +498,7 @@ public class WaiterAgent extends Agent implements Waiter {
 		returningHome = true;
 		waiterGui.DoReturnHome();
 		try {
-			atHome.acquire();
+			acquire(atHome);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -496,7 +524,7 @@ public class WaiterAgent extends Agent implements Waiter {
 		returningHome = true;
 		waiterGui.DoGoToCustomer();
 		try {
-			atCustomer.acquire();
+			acquire(atCustomer);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -504,7 +532,7 @@ public class WaiterAgent extends Agent implements Waiter {
 		mc.getCust().msgFollowMe(this, menu, mc.getTable());
 		DoSeatCustomer(mc);
 		try {
-			atTable.acquire();
+			acquire(atTable);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -521,7 +549,7 @@ public class WaiterAgent extends Agent implements Waiter {
 	private void takeOrder(MyCustomer mc) {
 		waiterGui.DoGoToTable(mc.getTable());
 		try {
-			atTable.acquire();
+			acquire(atTable);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -539,7 +567,7 @@ public class WaiterAgent extends Agent implements Waiter {
 	private void askToReorder(MyCustomer mc) {
 		waiterGui.DoGoToTable(mc.getTable());
 		try {
-			atTable.acquire();
+			acquire(atTable);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -558,12 +586,12 @@ public class WaiterAgent extends Agent implements Waiter {
 		mc.setState(CustomerState.WaitingForFood);
 		waiterGui.DoGoToCook();
 		try {
-			atCook.acquire();
+			acquire(atCook);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
-		print("Here is the order for table " + mc.getTable() + ": " + mc.getChoice());
+		print("Here is the order for table {}: {}", mc.getTable(), mc.getChoice());
 		cook.msgHereIsOrder(this, mc.getChoice(), mc.getTable());
 		waiterGui.DoReturnHome();
 	}
@@ -574,16 +602,16 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param mc Reference to MyCustomer
 	 */
 	private void retrieveOrder(MyCustomer mc) {
-		print("Retrieving order for table " + mc.getTable());
+		print("Retrieving order for table {}", mc.getTable());
 		waiterGui.DoGoToPlatingArea();
 		try {
-			atCook.acquire();
+			acquire(atCook);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 		cookGui.DoRemoveFood(mc.getChoice());
-		print("Delivering " + mc.getChoice() + " to table " + mc.getTable());
+		print("Delivering {} to table {}", mc.getChoice(), mc.getTable());
 		waiterGui.DoDeliverFood(mc.getChoice());
 		mc.setState(CustomerState.ReadyToEat);
 	}
@@ -596,7 +624,7 @@ public class WaiterAgent extends Agent implements Waiter {
 	private void deliverFood(MyCustomer mc) {
 		waiterGui.DoGoToTable(mc.getTable());
 		try {
-			atTable.acquire();
+			acquire(atTable);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -627,13 +655,13 @@ public class WaiterAgent extends Agent implements Waiter {
 	private void giveCheckToCustomer(MyCustomer mc) {
 		waiterGui.DoGoToTable(mc.getTable());
 		try {
-			atTable.acquire();
+			acquire(atTable);
 		} catch (InterruptedException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
-		Do("Here is your check. The charge is $" + mc.charge);
-		print(mc.getCust() + " leaving table " + mc.getTable());
+		Do("Here is your check. The charge is ${}", mc.charge);
+		print("{} leaving table {}", mc.getCust(), mc.getTable());
 		mc.getCust().msgHereIsCheck(mc.charge);
 		mc.setState(CustomerState.Leaving);
 		waiterGui.DoReturnHome();
@@ -645,7 +673,7 @@ public class WaiterAgent extends Agent implements Waiter {
 	 * @param mc Reference to MyCustomer
 	 */
 	private void DoSeatCustomer(MyCustomer mc) {
-		print("Seating " + mc.getCust() + " at table " + mc.getTable());
+		print("Seating {} at table {}", mc.getCust(), mc.getTable());
 		waiterGui.DoGoToTable(mc.getTable()); 
 
 	}
@@ -662,10 +690,9 @@ public class WaiterAgent extends Agent implements Waiter {
 		String choice;
 		int charge;
 
-		MyCustomer(CustomerAgent c, int tableNumber, CustomerState s) {
+		MyCustomer(CustomerAgent c, int tableNumber) {
 			cust = c;
 			table = tableNumber;
-			state = s;
 			charge = 0;
 		}
 
@@ -681,8 +708,26 @@ public class WaiterAgent extends Agent implements Waiter {
 			return state;
 		}
 		
+		/**
+		 * Moves the customer to another state's bucket. Entering DoingNothing
+		 * retires the customer; leaving it registers the customer again.
+		 */
 		void setState(CustomerState s) {
+			if (state == CustomerState.DoingNothing) {
+				customers.put(cust, this);
+				customersByTable.put(table, this);
+			} else {
+				customersByState.get(state).remove(this);
+			}
 			state = s;
+			if (s == CustomerState.DoingNothing) {
+				customers.remove(cust);
+				if (customersByTable.get(table) == this) {
+					customersByTable.remove(table);
+				}
+			} else {
+				customersByState.get(s).add(this);
+			}
 		}
 		
 		void setCharge(int c) {
@@ -690,6 +735,10 @@ public class WaiterAgent extends Agent implements Waiter {
 		}
 		
 		void setTable(int t) {
+			if (customersByTable.get(table) == this) {
+				customersByTable.remove(table);
+				customersByTable.put(t, this);
+			}
 			table = t;
 		}
 		
@@ -702,4 +751,3 @@ public class WaiterAgent extends Agent implements Waiter {
 		}
 	}
 }
-
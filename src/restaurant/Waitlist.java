@@ -0,0 +1,173 @@
+package restaurant;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Line of people waiting for a table, ordered by a priority given when they
+ * join, lowest first, and first come, first served among equal priorities.
+ * Adding someone returns a Handle, and the handle takes them back out of
+ * the line wherever they are, so a customer who gives up waiting does not
+ * cost a search of the whole line. Adding and removing are O(log n).
+ * Iterating walks the line from the front without changing it, and people
+ * may be taken out of the line along the way.
+ *
+ * Not thread-safe; the host only touches it from its own thread.
+ */
+public class Waitlist<T> implements Iterable<T> {
+	private final TreeSet<Handle<T>> line = new TreeSet<Handle<T>>();
+	private long arrivals = 0;
+
+	/**
+	 * Adds someone to the end of the line
+	 *
+	 * @param item Who is waiting
+	 * @return the handle for taking them out of the line later
+	 */
+	public Handle<T> add(T item) {
+		return add(item, 0);
+	}
+
+	/**
+	 * Adds someone to the line behind everyone with the same or a lower priority
+	 *
+	 * @param item Who is waiting
+	 * @param priority Place in line; lower goes first
+	 * @return the handle for taking them out of the line later
+	 */
+	public Handle<T> add(T item, long priority) {
+		Handle<T> h = new Handle<T>(item, priority, arrivals++);
+		line.add(h);
+		h.queued = true;
+		return h;
+	}
+
+	/**
+	 * Returns whoever is first in line without removing them
+	 *
+	 * @return the first item, or null if the line is empty
+	 */
+	public T peek() {
+		return line.isEmpty() ? null : line.first().item;
+	}
+
+	/**
+	 * Removes and returns whoever is first in line
+	 *
+	 * @return the first item, or null if the line is empty
+	 */
+	public T poll() {
+		Handle<T> h = line.pollFirst();
+		if (h == null) {
+			return null;
+		}
+		h.queued = false;
+		return h.item;
+	}
+
+	/**
+	 * Takes someone out of the line
+	 *
+	 * @param h Handle returned when they were added
+	 * @return true if they were removed, false if they had already left the line
+	 */
+	public boolean remove(Handle<T> h) {
+		if (h == null || !h.queued) {
+			return false;
+		}
+		line.remove(h);
+		h.queued = false;
+		return true;
+	}
+
+	/**
+	 * Returns the number of people in line
+	 */
+	public int size() {
+		return line.size();
+	}
+
+	/**
+	 * Checks if nobody is waiting
+	 *
+	 * @return true if the line is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return line.isEmpty();
+	}
+
+	/**
+	 * Returns an iterator over the line from the front. It does not support
+	 * remove, but remove(Handle) may be used while iterating; each step
+	 * finds whoever is now behind the last item returned.
+	 */
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private Handle<T> last = null;
+
+			private Handle<T> following() {
+				if (last == null) {
+					return line.isEmpty() ? null : line.first();
+				}
+				return line.higher(last);
+			}
+
+			public boolean hasNext() {
+				return following() != null;
+			}
+
+			public T next() {
+				Handle<T> h = following();
+				if (h == null) {
+					throw new NoSuchElementException();
+				}
+				last = h;
+				return h.item;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * One place in the line
+	 */
+	public static class Handle<T> implements Comparable<Handle<T>> {
+		private final T item;
+		private final long priority;
+		private final long arrival;
+		private boolean queued;
+
+		private Handle(T item, long priority, long arrival) {
+			this.item = item;
+			this.priority = priority;
+			this.arrival = arrival;
+		}
+
+		public int compareTo(Handle<T> o) {
+			if (priority != o.priority) {
+				return priority < o.priority ? -1 : 1;
+			}
+			return arrival < o.arrival ? -1 : (arrival == o.arrival ? 0 : 1);
+		}
+
+		/**
+		 * Returns who holds this place
+		 */
+		public T get() {
+			return item;
+		}
+
+		/**
+		 * Checks if this place is still in line
+		 *
+		 * @return true until the item is polled or removed, false after
+		 */
+		public boolean isQueued() {
+			return queued;
+		}
+	}
+}
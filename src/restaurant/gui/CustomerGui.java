@@ -21,7 +21,6 @@ public class CustomerGui implements Gui{
 	private enum Command {noCommand, GoToRestaurant, GoToSeat, GoToCashier, LeaveRestaurant};
 	private Command command=Command.noCommand;
 	private boolean ordering;
-	private Timer timer = new Timer();
 
 	//Get rid of the "magic numbers"
 	static final int CUSTWIDTH = 20;
@@ -167,7 +166,7 @@ public class CustomerGui implements Gui{
 	 */
 	public void order() {
 		ordering = true;
-		timer.schedule(new TimerTask() {
+		agent.getTimerService().schedule(new Runnable() {
 			public void run() {
 				ordering = false;
 				agent.msgDoneOrdering();
@@ -0,0 +1,95 @@
+package restaurant.gui;
+
+import restaurant.CustomerAgent;
+
+/**
+ * Customer GUI with no window, for running the restaurant in a Simulation.
+ * Every walk takes a fixed time on the agent's clock instead of being animated.
+ */
+public class HeadlessCustomerGui extends CustomerGui {
+
+	private CustomerAgent agent;
+	private boolean hungry = false;
+	private boolean seated = false;
+	private boolean gone = false;
+
+	//Average time the animation takes to cross the floor at one pixel per 10 ms
+	static final long WALKTIME = 2000;
+	static final long ORDERTIME = 1000;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param c Reference to CustomerAgent
+	 */
+	public HeadlessCustomerGui(CustomerAgent c) {
+		super(c, null);
+		agent = c;
+	}
+
+	/**
+	 * Returns true once the customer has walked out of the restaurant
+	 */
+	public boolean hasLeft() {
+		return gone;
+	}
+
+	/**
+	 * Returns true once the customer has been shown to a table
+	 */
+	public boolean wasSeated() {
+		return seated;
+	}
+
+	public void setHungry(int numCustomers) {
+		hungry = true;
+		agent.gotHungry();
+		agent.getTimerService().schedule(new Runnable() {
+			public void run() {
+				agent.msgAnimationFinishedEnterRestaurant();
+			}
+		}, WALKTIME);
+	}
+
+	public boolean isHungry() {
+		return hungry;
+	}
+
+	public void moveForwardInWait(int numCustomers) {
+	}
+
+	public void order() {
+		agent.getTimerService().schedule(new Runnable() {
+			public void run() {
+				agent.msgDoneOrdering();
+			}
+		}, ORDERTIME);
+	}
+
+	public void DoGoToSeat(int seatnumber) {
+		seated = true;
+		agent.getTimerService().schedule(new Runnable() {
+			public void run() {
+				agent.msgAnimationFinishedGoToSeat();
+			}
+		}, WALKTIME);
+	}
+
+	public void DoGoToCashier() {
+		agent.getTimerService().schedule(new Runnable() {
+			public void run() {
+				agent.msgAtCashier();
+			}
+		}, WALKTIME);
+	}
+
+	public void DoExitRestaurant() {
+		agent.getTimerService().schedule(new Runnable() {
+			public void run() {
+				hungry = false;
+				gone = true;
+				agent.msgAnimationFinishedLeaveRestaurant();
+			}
+		}, WALKTIME);
+	}
+}
@@ -0,0 +1,99 @@
+package restaurant.gui;
+
+import restaurant.FloorPlan;
+import restaurant.WaiterAgent;
+
+/**
+ * Waiter GUI with no window, for running the restaurant in a Simulation.
+ * Every walk takes as long on the agent's clock as the animation would to
+ * cover the distance on the FloorPlan, instead of being animated.
+ */
+public class HeadlessWaiterGui extends WaiterGui {
+
+    private WaiterAgent agent;
+    private FloorPlan floor;
+    private final int homeX;
+    private final int homeY;
+    private int x, y;
+    private long walked = 0;
+
+    //The animation moves one pixel every 10 ms
+    static final long PIXELTIME = 10;
+
+    /**
+     * Constructor
+     * 
+     * @param agent Reference to WaiterAgent
+     * @param waiterNum Number of other waiters in restaurant
+     * @param floor Reference to FloorPlan the host seats customers by
+     */
+    public HeadlessWaiterGui(WaiterAgent agent, int waiterNum, FloorPlan floor) {
+        super(agent, null, waiterNum);
+        this.agent = agent;
+        this.floor = floor;
+        homeX = FloorPlan.getWaiterHomeX(waiterNum);
+        homeY = FloorPlan.getWaiterHomeY(waiterNum);
+        x = homeX;
+        y = homeY;
+    }
+
+    /**
+     * Returns the number of pixels the waiter has walked
+     */
+    public long getDistanceWalked() {
+        return walked;
+    }
+
+    /**
+     * Walks to a point and runs the arrival once there
+     */
+    private void walkTo(int toX, int toY, Runnable arrival) {
+        int d = FloorPlan.distance(x, y, toX, toY);
+        walked += d;
+        x = toX;
+        y = toY;
+        agent.getTimerService().schedule(arrival, d * PIXELTIME);
+    }
+
+    public void DoGoToTable(int tableNumber) {
+        walkTo(floor.getTableX(tableNumber), floor.getTableY(tableNumber), new Runnable() {
+            public void run() {
+                agent.msgAtTable();
+            }
+        });
+    }
+
+    public void DoGoToCustomer() {
+        walkTo(FloorPlan.ENTRANCE_X, FloorPlan.ENTRANCE_Y, new Runnable() {
+            public void run() {
+                agent.msgAtCustomer();
+            }
+        });
+    }
+
+    public void DoGoToCook() {
+        walkTo(FloorPlan.KITCHEN_X, FloorPlan.KITCHEN_Y, new Runnable() {
+            public void run() {
+                agent.msgAtCook();
+            }
+        });
+    }
+
+    public void DoGoToPlatingArea() {
+        DoGoToCook();
+    }
+
+    public void DoReturnHome() {
+        walkTo(homeX, homeY, new Runnable() {
+            public void run() {
+                agent.msgAtHome();
+            }
+        });
+    }
+
+    public void setCBEnabled() {
+    }
+
+    public void DoDeliverFood(String choice) {
+    }
+}
@@ -6,6 +6,8 @@ import restaurant.MarketAgent;
 import restaurant.WaiterAgent;
 import restaurant.CookAgent;
 import restaurant.CashierAgent;
+import agent.Agent;
+import agent.ExecutionMode;
 
 import javax.swing.*;
 
@@ -34,6 +36,9 @@ public class RestaurantPanel extends JPanel {
     private RestaurantGui gui; //reference to main gui
     private CookGui cookGui;
 
+    //Kind of thread every agent in this restaurant runs on (-Drestaurant.threads=virtual)
+    private ExecutionMode mode = ExecutionMode.parse(System.getProperty("restaurant.threads"), ExecutionMode.PLATFORM);
+
     public RestaurantPanel(RestaurantGui gui) {
         this.gui = gui;
         
@@ -44,17 +49,16 @@ public class RestaurantPanel extends JPanel {
 		cook.addMarket(markets.get(0));
 		cook.addMarket(markets.get(1));
 		cook.addMarket(markets.get(2));
-		cook.setHost(host);
         
 		cookGui = new CookGui(gui);
 		gui.animationPanel.addGui(cookGui);
 		cook.setGui(cookGui);
 		
-        host.startThread();
-        cook.startThread();
-        cashier.startThread();
+        startAgent(host);
+        startAgent(cook);
+        startAgent(cashier);
         for (MarketAgent market : markets) {
-        	market.startThread();
+        	startAgent(market);
         }
 
         setLayout(new GridLayout(1, 2, 20, 20));
@@ -68,6 +72,16 @@ public class RestaurantPanel extends JPanel {
         add(group);
     }
     
+    /**
+     * Starts an agent's scheduler on the kind of thread chosen for this restaurant
+     * 
+     * @param a Reference to Agent
+     */
+    private void startAgent(Agent a) {
+    	a.setExecutionMode(mode);
+    	a.startThread();
+    }
+    
     /**
      * Returns the text from RestaurantGui's infoLabel
      */
@@ -218,7 +232,7 @@ public class RestaurantPanel extends JPanel {
     		c.setCashier(cashier);
     		c.setGui(g);
     		customers.add(new MyCustomer(c));
-    		c.startThread();
+    		startAgent(c);
     	}
     	if (type.equals("Waiters")) {
     		WaiterAgent w = new WaiterAgent(name);	
@@ -231,7 +245,7 @@ public class RestaurantPanel extends JPanel {
      		w.setGui(g);
      		w.setGui(cookGui);
      		waiters.add(w);
-     		w.startThread();
+     		startAgent(w);
      		host.addWaiter(w);
     	}
     }
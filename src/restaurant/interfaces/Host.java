@@ -0,0 +1,14 @@
+package restaurant.interfaces;
+
+import restaurant.CustomerAgent;
+
+/**
+ * Host Interface: whoever customers ask for a table
+ */
+public interface Host {
+	
+	public abstract void msgIWantFood(CustomerAgent cust, int partySize);
+	
+	public abstract void msgImLeaving(CustomerAgent c);
+
+}
@@ -0,0 +1,136 @@
+package restaurant.test;
+
+import agent.Constants;
+import restaurant.AdmissionPolicy;
+import restaurant.AdmissionPolicy.Decision;
+import junit.framework.*;
+
+/**
+ * Unit testing for AdmissionPolicy
+ */
+public class AdmissionPolicyTest extends TestCase
+{
+	AdmissionPolicy policy;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		policy = new AdmissionPolicy();
+	}
+
+	/**
+	 * Asserts the retry delay is the given number of minutes, give or take
+	 * the millisecond rounding up a fraction of a token can cost
+	 */
+	private void assertRetryMinutes(String message, int minutes) {
+		long delay = policy.getRetryDelay();
+		assertTrue(message + " It was " + delay + " ms.",
+				delay >= minutes * Constants.MINUTE && delay <= minutes * Constants.MINUTE + 1);
+	}
+
+	/**
+	 * Tests that with no limits set everyone is admitted
+	 */
+	public void testNoLimits()
+	{
+		for (int i = 0; i < 100; i++) {
+			assertEquals("Party " + i + " should have been admitted. It wasn't.", Decision.Admit, policy.admit(i, Constants.HOUR, 0));
+		}
+
+		assertEquals("100 parties should have been admitted. " + policy.getAdmittedCount() + " were.", 100, policy.getAdmittedCount());
+	}
+
+	/**
+	 * Tests that parties are turned away at the queue and wait limits
+	 */
+	public void testQueueAndWaitLimits()
+	{
+		policy.setMaxQueue(3);
+		policy.setMaxWait(30 * Constants.MINUTE);
+
+		assertEquals("A party joining a line of 2 should have been admitted. It wasn't.", Decision.Admit, policy.admit(2, 0, 0));
+
+		assertEquals("A party joining a line of 3 should have been rejected. It wasn't.", Decision.Reject, policy.admit(3, 0, 0));
+
+		assertEquals("A party quoted exactly the longest wait should have been admitted. It wasn't.",
+				Decision.Admit, policy.admit(0, 30 * Constants.MINUTE, 0));
+
+		assertEquals("A party quoted more than the longest wait should have been rejected. It wasn't.",
+				Decision.Reject, policy.admit(0, 30 * Constants.MINUTE + 1, 0));
+
+		assertEquals("A returning party should still be held to the queue limit. It wasn't.", Decision.Reject, policy.readmit(3, 0));
+
+		assertEquals("2 parties should have been admitted. " + policy.getAdmittedCount() + " were.", 2, policy.getAdmittedCount());
+
+		assertEquals("3 parties should have been rejected. " + policy.getRejectedCount() + " were.", 3, policy.getRejectedCount());
+	}
+
+	/**
+	 * Tests that the bucket admits a burst, then defers parties spaced out
+	 * by the tokens promised to those deferred before them
+	 */
+	public void testTokenDebt()
+	{
+		policy.setArrivalRate(1, 2);
+
+		//step 1: A burst of 2 is admitted at once
+		assertEquals("The first party of the burst should have been admitted. It wasn't.", Decision.Admit, policy.admit(0, 0, 0));
+		assertEquals("The second party of the burst should have been admitted. It wasn't.", Decision.Admit, policy.admit(1, 0, 0));
+
+		//step 2: The next two are deferred, the second for longer than the first
+		assertEquals("The third party should have been deferred. It wasn't.", Decision.Defer, policy.admit(2, 0, 0));
+		assertRetryMinutes("The third party should have been told to come back in 1 minute.", 1);
+
+		assertEquals("The fourth party should have been deferred. It wasn't.", Decision.Defer, policy.admit(2, 0, 0));
+		assertRetryMinutes("The fourth party should have been told to come back in 2 minutes, after the third.", 2);
+
+		//step 3: A deferred party comes back holding its token and skips the bucket
+		assertEquals("A returning party should have been admitted. It wasn't.", Decision.Admit, policy.readmit(2, 0));
+
+		assertEquals("The fifth party should have been deferred. It wasn't.", Decision.Defer, policy.admit(2, 0, 0));
+		assertRetryMinutes("Readmitting should not have used a token, so the fifth party should wait 3 minutes.", 3);
+
+		//check postconditions for step 3
+		assertEquals("3 parties should have been admitted. " + policy.getAdmittedCount() + " were.", 3, policy.getAdmittedCount());
+
+		assertEquals("3 parties should have been deferred. " + policy.getDeferredCount() + " were.", 3, policy.getDeferredCount());
+	}
+
+	/**
+	 * Tests that a cancelled deferral gives its token back, but never fills
+	 * the bucket past its burst
+	 */
+	public void testCancelDeferral()
+	{
+		policy.setArrivalRate(1, 2);
+
+		//step 1: Use up the burst and defer two parties
+		policy.admit(0, 0, 0);
+		policy.admit(0, 0, 0);
+		policy.admit(0, 0, 0);
+		policy.admit(0, 0, 0);
+		assertRetryMinutes("The second deferred party should wait 2 minutes.", 2);
+
+		//step 2: The second deferred party does not come back
+		policy.cancelDeferral();
+
+		//check postconditions for step 2
+		assertEquals("The next party should have been deferred. It wasn't.", Decision.Defer, policy.admit(0, 0, 0));
+		assertRetryMinutes("The cancelled party's token should have been given back, so the next party should wait 2 minutes.", 2);
+
+		//step 3: Long after, with the bucket full again, cancelling gives nothing extra
+		policy.admit(0, 0, 10 * Constants.MINUTE);
+		policy.cancelDeferral();
+		policy.cancelDeferral();
+
+		assertEquals("The bucket should have refilled, so this party should have been admitted. It wasn't.",
+				Decision.Admit, policy.admit(0, 0, 10 * Constants.MINUTE));
+		assertEquals("The bucket should have refilled, so this party should have been admitted. It wasn't.",
+				Decision.Admit, policy.admit(0, 0, 10 * Constants.MINUTE));
+
+		assertEquals("The bucket should hold no more than its burst, so this party should have been deferred. It wasn't.",
+				Decision.Defer, policy.admit(0, 0, 10 * Constants.MINUTE));
+	}
+}
@@ -0,0 +1,90 @@
+package restaurant.test;
+
+import java.lang.ref.WeakReference;
+
+import agent.AgentRegistry;
+import agent.AgentStats;
+import agent.Simulation;
+import restaurant.CustomerAgent;
+import junit.framework.*;
+
+/**
+ * Unit testing for AgentRegistry.  The agents are put under a Simulation
+ * that is never run, so starting them starts no threads.
+ */
+public class AgentRegistryTest extends TestCase
+{
+	Simulation sim;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		AgentRegistry.clear();
+		sim = new Simulation();
+	}
+
+	/**
+	 * Returns a started customer with the given name
+	 */
+	private CustomerAgent start(String name) {
+		CustomerAgent c = new CustomerAgent(name, 1);
+		sim.add(c);
+		c.startThread();
+		return c;
+	}
+
+	/**
+	 * Tests that agents are listed in the order they started and taken out when stopped
+	 */
+	public void testRegisterAndStop()
+	{
+		CustomerAgent a = start("a");
+		CustomerAgent b = start("b");
+		CustomerAgent c = start("c");
+
+		assertEquals("3 agents should be registered. " + AgentRegistry.getAll().size() + " are.", 3, AgentRegistry.getAll().size());
+
+		assertSame("The first agent listed should be the first started. It isn't.", a.getStats(), AgentRegistry.getAll().get(0));
+
+		assertSame("The last agent listed should be the last started. It isn't.", c.getStats(), AgentRegistry.getAll().get(2));
+
+		//step 1: The middle agent is stopped
+		b.stopThread();
+
+		//check postconditions for step 1
+		assertNull("A stopped agent should not be found. It was.", AgentRegistry.find("b"));
+
+		assertEquals("2 agents should be registered. " + AgentRegistry.getAll().size() + " are.", 2, AgentRegistry.getAll().size());
+
+		assertSame("The agents left should be found by name. c wasn't.", c.getStats(), AgentRegistry.find("c"));
+	}
+
+	/**
+	 * Tests that an agent nothing refers to any more drops out of the
+	 * registry without being stopped
+	 */
+	public void testForgetsCollectedAgents()
+	{
+		CustomerAgent kept = start("kept");
+		WeakReference<CustomerAgent> gone = new WeakReference<CustomerAgent>(start("gone"));
+
+		//step 1: Drop the simulation holding the agent, and collect it
+		sim = null;
+		for (int i = 0; i < 50 && gone.get() != null; i++) {
+			System.gc();
+		}
+		if (gone.get() != null) {
+			return;//the collector kept it; nothing to check
+		}
+
+		//check postconditions for step 1
+		assertNull("A collected agent should not be found. It was.", AgentRegistry.find("gone"));
+
+		assertEquals("Only the agent still referred to should be registered. " + AgentRegistry.getAll().size() + " are.",
+				1, AgentRegistry.getAll().size());
+
+		assertSame("The agent still referred to should be found. It wasn't.", kept.getStats(), AgentRegistry.find("kept"));
+	}
+}
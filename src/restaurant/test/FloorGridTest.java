@@ -0,0 +1,162 @@
+package restaurant.test;
+
+import java.util.*;
+
+import restaurant.FloorGrid;
+import junit.framework.*;
+
+/**
+ * Unit testing for FloorGrid
+ */
+public class FloorGridTest extends TestCase
+{
+	FloorGrid<String> grid;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		grid = new FloorGrid<String>(100);
+	}
+
+	/**
+	 * Returns the nearest things to a point, as a set
+	 */
+	private Set<String> nearest(int x, int y, int k) {
+		Set<String> found = new HashSet<String>();
+		grid.nearest(x, y, k, found);
+		return found;
+	}
+
+	/**
+	 * Tests that the order things were added in is kept, and removing takes them out
+	 */
+	public void testOrderAndRemove()
+	{
+		grid.add("a", 150, 250);
+		grid.add("b", -400, 900);
+		grid.add("c", 2000, -50);
+
+		assertEquals("The first added should be first. It isn't.", "a", grid.first());
+
+		assertTrue("Removing a should succeed. It didn't.", grid.remove("a"));
+
+		assertFalse("Removing a again should fail. It didn't.", grid.remove("a"));
+
+		assertEquals("b should now be first. It isn't.", "b", grid.first());
+
+		List<String> left = new ArrayList<String>();
+		for (String s : grid) {
+			left.add(s);
+		}
+		assertEquals("b and c should be left, in order. " + left + " are.", Arrays.asList("b", "c"), left);
+
+		assertEquals("The grid should have 2 things. It has " + grid.size() + ".", 2, grid.size());
+	}
+
+	/**
+	 * Tests that the search on a floor full of things finds those in the
+	 * nearest cells and not ones across the floor
+	 */
+	public void testNearestOnFullFloor()
+	{
+		//a 20 by 20 block of tables 100 px apart
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 20; y++) {
+				grid.add(x + "," + y, 50 + 100 * x, 50 + 100 * y);
+			}
+		}
+
+		Set<String> found = nearest(1050, 1050, 4);
+
+		assertTrue("The table at the point should be found. It wasn't: " + found, found.contains("10,10"));
+
+		assertTrue("The ring around it should be found. It wasn't: " + found, found.contains("9,9") && found.contains("11,11"));
+
+		assertTrue("Only the 9 cells nearest should be searched. " + found.size() + " things were found.", found.size() == 9);
+
+		//step 2: Take out the middle ones; the next ring out is found instead
+		for (int x = 9; x <= 11; x++) {
+			for (int y = 9; y <= 11; y++) {
+				grid.remove(x + "," + y);
+			}
+		}
+		found = nearest(1050, 1050, 4);
+
+		assertFalse("Removed tables should not be found. One was: " + found, found.contains("10,10"));
+
+		assertTrue("The next ring out should be found. It wasn't: " + found, found.contains("8,8") && found.contains("12,10"));
+	}
+
+	/**
+	 * Tests that when the few things there are lie far away the k nearest
+	 * of them are found
+	 */
+	public void testNearestWhenSparse()
+	{
+		grid.add("near", 5000, 5000);
+		grid.add("nearer", 4000, 4000);
+		grid.add("far", 9000, 9000);
+		grid.add("farthest", 9900, 9900);
+		grid.add("corner", 0, 0);
+
+		assertEquals("The 2 nearest to the corner should be found. They weren't.",
+				new HashSet<String>(Arrays.asList("corner", "nearer")), nearest(100, 100, 2));
+
+		assertEquals("The 2 nearest to the far side should be found. They weren't.",
+				new HashSet<String>(Arrays.asList("far", "farthest")), nearest(9500, 9500, 2));
+
+		assertEquals("Asking for more than there are should find them all. It didn't.", 5, nearest(0, 0, 10).size());
+	}
+
+	/**
+	 * Tests the search against looking at everything, on random floors
+	 * grown in every direction with things removed along the way
+	 */
+	public void testNearestAgainstEverything()
+	{
+		Random random = new Random(3);
+		for (int trial = 0; trial < 500; trial++) {
+			grid = new FloorGrid<String>(100);
+			Map<String, int[]> where = new HashMap<String, int[]>();
+			int n = 1 + random.nextInt(60);
+			for (int i = 0; i < n; i++) {
+				int[] p = {random.nextInt(3000) - 1000, random.nextInt(3000) - 1000};
+				grid.add("t" + i, p[0], p[1]);
+				where.put("t" + i, p);
+				if (i % 4 == 3) {
+					grid.remove("t" + (i - 2));
+					where.remove("t" + (i - 2));
+				}
+			}
+			int x = random.nextInt(3000) - 1000;
+			int y = random.nextInt(3000) - 1000;
+			int k = 1 + random.nextInt(4);
+			Set<String> found = nearest(x, y, k);
+
+			assertTrue("Trial " + trial + " should find at least " + Math.min(k, where.size()) + " things. It found " + found.size() + ".",
+					found.size() >= Math.min(k, where.size()));
+
+			assertTrue("Trial " + trial + " should only find things in the grid. It found " + found + ".",
+					where.keySet().containsAll(found));
+
+			//the nearest of all is always found
+			String best = null;
+			int bestDistance = Integer.MAX_VALUE;
+			for (Map.Entry<String, int[]> e : where.entrySet()) {
+				int d = Math.max(Math.abs(e.getValue()[0] - x), Math.abs(e.getValue()[1] - y));
+				if (d < bestDistance) {
+					bestDistance = d;
+					best = e.getKey();
+				}
+			}
+			int found0 = Integer.MAX_VALUE;
+			for (String s : found) {
+				found0 = Math.min(found0, Math.max(Math.abs(where.get(s)[0] - x), Math.abs(where.get(s)[1] - y)));
+			}
+			assertTrue("Trial " + trial + " should find something within a cell of the nearest, " + best + ". It didn't.",
+					found0 <= bestDistance + 100);
+		}
+	}
+}
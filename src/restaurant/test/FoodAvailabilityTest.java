@@ -0,0 +1,121 @@
+package restaurant.test;
+
+import java.util.*;
+
+import restaurant.FoodAvailability;
+import junit.framework.*;
+
+/**
+ * Unit testing for FoodAvailability
+ */
+public class FoodAvailabilityTest extends TestCase
+{
+	FoodAvailability foods;
+	Listener waiter;
+	Listener waiter2;
+
+	/**
+	 * Subscriber that records every food it is told about
+	 */
+	private static class Listener implements FoodAvailability.Subscriber {
+		final List<String> heard = new ArrayList<String>();
+
+		public void msgFoodArrived(String food) {
+			heard.add(food);
+		}
+	}
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		foods = new FoodAvailability();
+		waiter = new Listener();
+		waiter2 = new Listener();
+	}
+
+	/**
+	 * Tests that a subscriber is told once about a restock, however many
+	 * times it subscribed, and is forgotten afterwards
+	 */
+	public void testSubscribersToldOnce()
+	{
+		//step 1: Steak runs out and both waiters subscribe, one of them twice
+		foods.soldOut("Steak");
+		assertTrue("Subscribing to a sold-out food should succeed. It didn't.", foods.subscribe("Steak", waiter));
+		assertTrue("Subscribing again should succeed. It didn't.", foods.subscribe("Steak", waiter));
+		assertTrue("Subscribing to a sold-out food should succeed. It didn't.", foods.subscribe("Steak", waiter2));
+
+		//step 2: Steak is restocked
+		foods.publish("Steak");
+
+		//check postconditions for step 2
+		assertEquals("The waiter who subscribed twice should have heard once. It heard " + waiter.heard + ".",
+				Arrays.asList("Steak"), waiter.heard);
+
+		assertEquals("The other waiter should have heard once. It heard " + waiter2.heard + ".",
+				Arrays.asList("Steak"), waiter2.heard);
+
+		assertEquals("There should have been 2 deliveries. There were " + foods.getDeliveryCount() + ".", 2, foods.getDeliveryCount());
+
+		assertFalse("Steak should no longer be sold out, but is.", foods.isSoldOut("Steak"));
+
+		//step 3: A second restock goes to nobody
+		foods.publish("Steak");
+
+		assertEquals("Nobody should have heard of the second restock. The waiter heard " + waiter.heard + ".", 1, waiter.heard.size());
+
+		assertEquals("There should still have been 2 deliveries. There were " + foods.getDeliveryCount() + ".", 2, foods.getDeliveryCount());
+
+		assertEquals("Both restocks should have been counted. " + foods.getPublishCount() + " were.", 2, foods.getPublishCount());
+	}
+
+	/**
+	 * Tests that restocks which come before anyone subscribes cost no
+	 * messages, and that subscribing after the food is back is refused
+	 */
+	public void testRestockBeforeSubscribe()
+	{
+		//step 1: A food that never ran out cannot be subscribed to
+		assertFalse("Subscribing to a food in stock should be refused. It wasn't.", foods.subscribe("Salad", waiter));
+
+		//step 2: Salad runs out and is restocked twice before the waiter hears it ran out
+		foods.soldOut("Salad");
+		foods.publish("Salad");
+		foods.publish("Salad");
+
+		//check postconditions for step 2
+		assertFalse("Subscribing after the restock should be refused, so the waiter puts it back on its menu. It wasn't.",
+				foods.subscribe("Salad", waiter));
+
+		assertEquals("There should have been no deliveries. There were " + foods.getDeliveryCount() + ".", 0, foods.getDeliveryCount());
+
+		//step 3: Salad runs out again; only the next restock is delivered
+		foods.soldOut("Salad");
+		assertTrue("Subscribing to a sold-out food should succeed. It didn't.", foods.subscribe("Salad", waiter));
+		foods.publish("Salad");
+
+		assertEquals("The waiter should have heard of the one restock after it subscribed. It heard " + waiter.heard + ".",
+				Arrays.asList("Salad"), waiter.heard);
+	}
+
+	/**
+	 * Tests that subscriptions to one food are not delivered by restocking another
+	 */
+	public void testFoodsKeptApart()
+	{
+		foods.soldOut("Steak");
+		foods.soldOut("Pizza");
+		foods.subscribe("Steak", waiter);
+		foods.subscribe("Pizza", waiter2);
+
+		foods.publish("Pizza");
+
+		assertTrue("The Steak subscriber should not have heard of Pizza. It heard " + waiter.heard + ".", waiter.heard.isEmpty());
+
+		assertEquals("The Pizza subscriber should have heard. It heard " + waiter2.heard + ".", Arrays.asList("Pizza"), waiter2.heard);
+
+		assertTrue("Steak should still be sold out. It isn't.", foods.isSoldOut("Steak"));
+	}
+}
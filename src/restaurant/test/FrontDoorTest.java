@@ -0,0 +1,289 @@
+package restaurant.test;
+
+import java.util.*;
+
+import agent.Constants;
+import agent.Simulation;
+import restaurant.CustomerAgent;
+import restaurant.FrontDoor;
+import restaurant.HostAgent;
+import restaurant.WaiterAgent;
+import junit.framework.*;
+
+/**
+ * Unit testing for FrontDoor, in front of two sections.  The front door
+ * routes on the calling thread, but the sections' msg* methods post to
+ * their mailboxes, so each step delivers the messages before running the
+ * schedulers.  A Simulation that is never run serves as the hosts' clock.
+ */
+public class FrontDoorTest extends TestCase
+{
+	Simulation clock;
+	HostAgent first;
+	HostAgent second;
+	FrontDoor door;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		clock = new Simulation();
+	}
+
+	/**
+	 * Sets up a front door in front of two sections with the given tables
+	 * and a waiter each
+	 *
+	 * @param firstTables Seats at each table in the first section
+	 * @param secondTables Seats at each table in the second section
+	 */
+	private void sections(int[] firstTables, int[] secondTables) {
+		first = new HostAgent("first", firstTables);
+		second = new HostAgent("second", secondTables);
+		door = new FrontDoor(Arrays.asList(first, second));
+		for (HostAgent host : door.getSections()) {
+			host.setTimerService(clock);
+			host.addWaiter(new WaiterAgent("waiter " + host.getName()));
+		}
+		deliver();
+	}
+
+	/**
+	 * Delivers the messages posted to the first section, then the second,
+	 * so a booking the first turns down reaches the second in the same step
+	 */
+	private void deliver() {
+		first.deliverMessages();
+		second.deliverMessages();
+	}
+
+	/**
+	 * Sends a party through the front door and delivers the message
+	 *
+	 * @param name Customer's name
+	 * @param partySize Number of people in the party
+	 */
+	private CustomerAgent arrive(String name, int partySize) {
+		CustomerAgent c = new CustomerAgent(name, partySize);
+		door.msgIWantFood(c, partySize);
+		deliver();
+		return c;
+	}
+
+	/**
+	 * Books a table through the front door and delivers the messages
+	 *
+	 * @param name Name the reservation is under
+	 * @param partySize Number of people in the party
+	 */
+	private void book(String name, int partySize) {
+		door.msgMakeReservation(name, partySize, Constants.HOUR);
+		deliver();
+	}
+
+	/**
+	 * Tests that walk-ins go to the section with the fewest occupied tables
+	 * and waiting parties per table, the first among equals
+	 */
+	public void testRoutesToLeastLoaded()
+	{
+		sections(new int[] {2, 2}, new int[] {2});
+
+		//step 1: Both sections are empty; the first gets the party
+		arrive("a", 2);
+
+		assertEquals("The first section should have the first party. It has " + first.getQueueLength() + ".", 1, first.getQueueLength());
+
+		//step 2: The first section is half full, the second empty
+		arrive("b", 2);
+
+		assertEquals("The second section should have the second party. It has " + second.getQueueLength() + ".", 1, second.getQueueLength());
+
+		//step 3: The first section is half full and the second full
+		arrive("c", 2);
+
+		//check postconditions for step 3
+		assertEquals("The first section, with more tables, should have the third party. It has " + first.getQueueLength() + " parties.",
+				2, first.getQueueLength());
+
+		assertEquals("The second section should still have 1 party. It has " + second.getQueueLength() + ".", 1, second.getQueueLength());
+	}
+
+	/**
+	 * Tests that parties and reservations too big for a section's tables
+	 * go to the section that can seat them, even if it is busier
+	 */
+	public void testOnlySectionsThatCanSeat()
+	{
+		sections(new int[] {2, 2}, new int[] {2, 8});
+
+		//step 1: A walk-in of 8 arrives; only the second section has a table for 8
+		arrive("big", 8);
+
+		assertEquals("The second section should have the party of 8. It has " + second.getQueueLength() + " parties.", 1, second.getQueueLength());
+
+		//step 2: A second party of 8 arrives though the first section is now less loaded
+		arrive("bigger", 8);
+
+		//check postconditions for step 2
+		assertEquals("The second section should have both parties of 8. It has " + second.getQueueLength() + ".", 2, second.getQueueLength());
+
+		assertEquals("The first section should have turned nobody away. It did.", 0, first.getTooBigCount());
+
+		//step 3: A reservation for 8 is booked with both sections holding none
+		book("party", 8);
+		arrive("party", 8);
+
+		//check postconditions for step 3
+		assertEquals("The party of 8 with a reservation should have gone to the second section. It has " + second.getQueueLength() + " parties.",
+				3, second.getQueueLength());
+
+		assertEquals("The first section should have no parties. It has " + first.getQueueLength() + ".", 0, first.getQueueLength());
+	}
+
+	/**
+	 * Tests that reservations are spread over the sections by how many each
+	 * holds, and that a party who booked goes to the section holding the
+	 * booking however loaded it is
+	 */
+	public void testReservationsGoToBookedSection()
+	{
+		sections(new int[] {2, 2}, new int[] {2, 2});
+
+		//step 1: Two bookings; ann's is in the first section, so bob's goes in the second
+		book("ann", 2);
+		book("bob", 2);
+
+		//step 2: bob arrives while both sections are empty
+		arrive("bob", 2);
+
+		//check postconditions for step 2
+		assertEquals("bob should have gone to the second section, holding that booking. It has " + second.getQueueLength() + " parties.",
+				1, second.getQueueLength());
+
+		assertEquals("The first section should have no parties. It has " + first.getQueueLength() + ".", 0, first.getQueueLength());
+
+		//step 3: Walk-ins leave the first section busier, then ann arrives
+		arrive("a", 2);
+		arrive("b", 2);
+
+		assertEquals("Both walk-ins should have gone to the first section. It has " + first.getQueueLength() + " parties.", 2, first.getQueueLength());
+
+		arrive("ann", 2);
+
+		//check postconditions for step 3
+		assertEquals("ann should have gone to the first section, holding that booking. It has " + first.getQueueLength() + " parties.",
+				3, first.getQueueLength());
+
+		assertEquals("The second section should still have just bob. It has " + second.getQueueLength() + " parties.", 1, second.getQueueLength());
+	}
+
+	/**
+	 * Tests that a section fully booked at the time passes the booking to
+	 * the next, and the party is sent to the section that took it
+	 */
+	public void testRefusedBookingTriesNextSection()
+	{
+		sections(new int[] {2}, new int[] {2, 2});
+
+		//step 1: ann is booked in the first section, bob in the second
+		book("ann", 2);
+		book("bob", 2);
+
+		//step 2: cal is offered to the first section, which has no table left then
+		book("cal", 2);
+
+		//step 3: cal arrives while both sections are empty
+		arrive("cal", 2);
+
+		//check postconditions for step 3
+		assertEquals("cal should have gone to the second section, which took the booking. It has " + second.getQueueLength() + " parties.",
+				1, second.getQueueLength());
+
+		assertEquals("The first section, which turned the booking down, should have no parties. It has " + first.getQueueLength() + ".",
+				0, first.getQueueLength());
+
+		//step 4: Each section holds 1 booking still to arrive; dan's is offered to the first, fully booked, then the second
+		book("dan", 2);
+		arrive("dan", 2);
+
+		//check postconditions for step 4
+		assertEquals("dan should have gone to the second section, the only one with a table then. It has " + second.getQueueLength() + " parties.",
+				2, second.getQueueLength());
+	}
+
+	/**
+	 * Tests that a party stops counting against its section once seated,
+	 * turned away or gone
+	 */
+	public void testReleaseWhenDone()
+	{
+		sections(new int[] {2, 2}, new int[] {2, 2});
+
+		//step 1: A party is seated in the first section and leaves its table
+		arrive("a", 2);
+		assertTrue("The first section's scheduler should have returned true (it should seat the party), but didn't.",
+				first.pickAndExecuteAnAction());
+		first.msgTableAvailable(1);
+		deliver();
+
+		//step 2: The next party arrives
+		arrive("b", 2);
+
+		//check postconditions for step 2
+		assertEquals("The first section, empty again, should have the next party. It has " + first.getQueueLength() + ".", 1, first.getQueueLength());
+
+		//step 3: That party is seated and leaves its table too
+		assertTrue("The first section's scheduler should have returned true (it should seat the party), but didn't.",
+				first.pickAndExecuteAnAction());
+		first.msgTableAvailable(1);
+		deliver();
+
+		assertEquals("The first section's tables should all be free. " + first.getOccupiedTableCount() + " are occupied.",
+				0, first.getOccupiedTableCount());
+
+		//step 4: A party too big for any table is turned away by the first section
+		arrive("huge", 10);
+		assertTrue("The first section's scheduler should have returned true (it should turn the party away), but didn't.",
+				first.pickAndExecuteAnAction());
+
+		assertEquals("The first section should have turned the party of 10 away. It didn't.", 1, first.getTooBigCount());
+
+		arrive("c", 2);
+
+		//check postconditions for step 4
+		assertEquals("The first section should have the next party, the one turned away no longer counting. It has "
+				+ first.getQueueLength() + ".", 1, first.getQueueLength());
+
+		assertEquals("The second section should have no parties. It has " + second.getQueueLength() + ".", 0, second.getQueueLength());
+	}
+
+	/**
+	 * Tests that a waiting party who leaves through the front door is taken
+	 * off its section's list and no longer counts against it
+	 */
+	public void testLeavingWhileWaiting()
+	{
+		sections(new int[] {2, 2}, new int[] {2, 2});
+
+		//step 1: Two parties wait in the first and second sections
+		CustomerAgent a = arrive("a", 2);
+		arrive("b", 2);
+
+		//step 2: The first section's party leaves
+		door.msgImLeaving(a);
+		deliver();
+
+		//check postconditions for step 2
+		assertEquals("The first section should have no parties. It has " + first.getQueueLength() + ".", 0, first.getQueueLength());
+
+		//step 3: The next party arrives
+		arrive("c", 2);
+
+		//check postconditions for step 3
+		assertEquals("The first section, empty again, should have the next party. It has " + first.getQueueLength() + ".", 1, first.getQueueLength());
+
+		assertEquals("The second section should still have 1 party. It has " + second.getQueueLength() + ".", 1, second.getQueueLength());
+	}
+}
@@ -0,0 +1,243 @@
+package restaurant.test;
+
+import agent.Constants;
+import agent.Simulation;
+import restaurant.CustomerAgent;
+import restaurant.HostAgent;
+import restaurant.WaiterAgent;
+import junit.framework.*;
+
+/**
+ * Unit testing for HostAgent.  The host's msg* methods post to its mailbox,
+ * so each step delivers the messages before running the scheduler.  A
+ * Simulation that is never run serves as the host's clock.
+ */
+public class HostTest extends TestCase
+{
+	Simulation clock;
+	HostAgent host;
+	WaiterAgent waiter;
+	CustomerAgent customer;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		clock = new Simulation();
+		host = new HostAgent("host", new int[] {2, 4});
+		host.setTimerService(clock);
+		waiter = new WaiterAgent("waiter");
+		customer = new CustomerAgent("customer", 2);
+	}
+
+	/**
+	 * Returns a host with a single 2-top and the waiter, on the test's clock.
+	 * Holds start 15 minutes before a reservation and no-shows are let go
+	 * 15 minutes after; reservations last 90 minutes.
+	 */
+	private HostAgent oneTableHost() {
+		HostAgent h = new HostAgent("host", new int[] {2});
+		h.setTimerService(clock);
+		h.addWaiter(waiter);
+		h.deliverMessages();
+		return h;
+	}
+
+	/**
+	 * Tests the most basic normative scenario - one party walks in and is seated
+	 */
+	public void testOneWalkInSeatedScenario()
+	{
+		host.addWaiter(waiter);
+
+		//step 1: Receive message from the customer
+		host.msgIWantFood(customer, 2);
+
+		//check postconditions for step 1 and preconditions for step 2
+		assertEquals("Host should not apply a message before it is delivered. The waitlist has " + host.getQueueLength() + " parties instead.",
+				0, host.getQueueLength());
+
+		host.deliverMessages();
+
+		assertEquals("Host should have 1 party waiting after the message is delivered. It doesn't.", 1, host.getQueueLength());
+
+		assertEquals("Host should have no occupied tables yet. It doesn't.", 0, host.getOccupiedTableCount());
+
+		//step 2: Run the scheduler
+		assertTrue("Host's scheduler should have returned true (it should seat the party), but didn't.", host.pickAndExecuteAnAction());
+
+		//check postconditions for step 2 and preconditions for step 3
+		assertEquals("Host should have 1 occupied table. It doesn't.", 1, host.getOccupiedTableCount());
+
+		assertEquals("Host should have an empty waitlist. Instead it has " + host.getQueueLength() + " parties.", 0, host.getQueueLength());
+
+		assertEquals("Host should have seated 2 covers. It doesn't.", 2, host.getCoversSeated());
+
+		assertEquals("Host should not have told the party the restaurant is full, but did.", 0, host.getStats().getRuleCount("tellCustomer"));
+
+		assertFalse("Host's scheduler should have returned false (nothing left to do), but didn't.", host.pickAndExecuteAnAction());
+
+		//step 3: Receive message that the table is free again (the party of 2 gets the 2-top, table 1)
+		host.msgTableAvailable(1);
+		host.deliverMessages();
+
+		//check postconditions for step 3
+		assertEquals("Host should have no occupied tables. It doesn't.", 0, host.getOccupiedTableCount());
+
+		assertFalse("Host's scheduler should have returned false (nothing left to do), but didn't.", host.pickAndExecuteAnAction());
+	}
+
+	/**
+	 * Tests that waiting parties are told the restaurant is full when a
+	 * table is free but no waiter is there to seat them
+	 */
+	public void testPartiesToldWhenNoWaiterFree()
+	{
+		CustomerAgent customer2 = new CustomerAgent("customer2", 2);
+
+		//step 1: Two parties arrive at a host with free tables but no waiters
+		host.msgIWantFood(customer, 2);
+		host.msgIWantFood(customer2, 2);
+		host.deliverMessages();
+
+		assertEquals("Host should have 2 parties waiting. It doesn't.", 2, host.getQueueLength());
+
+		//step 2: Run the scheduler
+		assertFalse("Host's scheduler should have returned false (nobody can be seated), but didn't.", host.pickAndExecuteAnAction());
+
+		//check postconditions for step 2
+		assertEquals("Host should have told both parties the restaurant is full. It told " + host.getStats().getRuleCount("tellCustomer") + ".",
+				2, host.getStats().getRuleCount("tellCustomer"));
+
+		assertEquals("Host should have seated nobody. It doesn't.", 0, host.getOccupiedTableCount());
+
+		//step 3: A waiter starts; the parties, already told, are seated without being told again
+		host.addWaiter(waiter);
+		host.deliverMessages();
+
+		assertTrue("Host's scheduler should have returned true (it should seat both parties), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have 2 occupied tables. It doesn't.", 2, host.getOccupiedTableCount());
+
+		assertEquals("Host should not have told anyone twice, but did.", 2, host.getStats().getRuleCount("tellCustomer"));
+	}
+
+	/**
+	 * Tests that booking again under the same name after the table was
+	 * held gives the table back to walk-ins
+	 */
+	public void testRebookingReleasesHold()
+	{
+		host = oneTableHost();
+
+		//step 1: Book for 30 minutes in and let the hold start
+		host.msgMakeReservation("ann", 2, 30 * Constants.MINUTE);
+		host.deliverMessages();
+		clock.runUntil(20 * Constants.MINUTE);
+		host.deliverMessages();
+
+		//step 2: A walk-in cannot have the held table
+		host.msgIWantFood(customer, 2);
+		host.deliverMessages();
+		host.pickAndExecuteAnAction();
+
+		assertEquals("Host should not seat a walk-in at a held table, but did.", 0, host.getOccupiedTableCount());
+
+		//step 3: The reservation is moved to later in the evening
+		host.msgMakeReservation("ann", 2, 3 * Constants.HOUR);
+		host.deliverMessages();
+
+		//check postconditions for step 3
+		assertTrue("Host's scheduler should have returned true (it should seat the walk-in), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have seated the walk-in at the table no longer held. It didn't.", 1, host.getOccupiedTableCount());
+	}
+
+	/**
+	 * Tests that a reserved party arriving before its hold window uses up the
+	 * reservation, so the table is not held for it again later
+	 */
+	public void testEarlyArrivalUsesUpReservation()
+	{
+		host = oneTableHost();
+		CustomerAgent ann = new CustomerAgent("ann", 2);
+
+		//step 1: Book for an hour in; the party comes at once and is seated
+		host.msgMakeReservation("ann", 2, Constants.HOUR);
+		host.msgIWantFood(ann, 2);
+		host.deliverMessages();
+
+		assertTrue("Host's scheduler should have returned true (it should seat the early party), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have seated the early party. It didn't.", 1, host.getOccupiedTableCount());
+
+		//step 2: The party leaves, and the time the hold would have started passes
+		host.msgTableAvailable(1);
+		clock.runUntil(Constants.HOUR);
+		host.deliverMessages();
+
+		//step 3: A walk-in arrives
+		host.msgIWantFood(customer, 2);
+		host.deliverMessages();
+
+		//check postconditions for step 3
+		assertTrue("Host's scheduler should have returned true (it should seat the walk-in), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have seated the walk-in, the table not being held. It didn't.", 1, host.getOccupiedTableCount());
+	}
+
+	/**
+	 * Tests that a hold coming due while the table is still held for a party
+	 * that has arrived waits its turn instead of taking the table from them
+	 */
+	public void testHoldWaitsForArrivedParty()
+	{
+		host = oneTableHost();
+		CustomerAgent ann = new CustomerAgent("ann", 2);
+		CustomerAgent bob = new CustomerAgent("bob", 2);
+		CustomerAgent cal = new CustomerAgent("cal", 2);
+
+		//step 1: A walk-in takes the table; ann books for 30 minutes in, bob right after her
+		host.msgIWantFood(customer, 2);
+		host.msgMakeReservation("ann", 2, 30 * Constants.MINUTE);
+		host.msgMakeReservation("bob", 2, 120 * Constants.MINUTE);
+		host.deliverMessages();
+		host.pickAndExecuteAnAction();
+
+		assertEquals("Host should have seated the walk-in. It didn't.", 1, host.getOccupiedTableCount());
+
+		//step 2: ann arrives on time and waits for the walk-in to finish
+		clock.runUntil(30 * Constants.MINUTE);
+		host.msgIWantFood(ann, 2);
+		host.deliverMessages();
+		host.pickAndExecuteAnAction();
+
+		//step 3: The walk-in stays until bob's hold has started, then leaves
+		clock.runUntil(110 * Constants.MINUTE);
+		host.msgTableAvailable(1);
+		host.deliverMessages();
+
+		//check postconditions for step 3
+		assertTrue("Host's scheduler should have returned true (it should seat ann), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have seated ann at her held table. It didn't.", 1, host.getOccupiedTableCount());
+
+		//step 4: ann leaves; the table is now held for bob, not given to a walk-in
+		host.msgTableAvailable(1);
+		host.msgIWantFood(cal, 2);
+		host.deliverMessages();
+		host.pickAndExecuteAnAction();
+
+		assertEquals("Host should keep the table for bob, but gave it away.", 0, host.getOccupiedTableCount());
+
+		//step 5: bob arrives
+		clock.runUntil(120 * Constants.MINUTE);
+		host.msgIWantFood(bob, 2);
+		host.deliverMessages();
+
+		assertTrue("Host's scheduler should have returned true (it should seat bob), but didn't.", host.pickAndExecuteAnAction());
+
+		assertEquals("Host should have seated bob. It didn't.", 1, host.getOccupiedTableCount());
+	}
+}
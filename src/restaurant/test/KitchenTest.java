@@ -0,0 +1,125 @@
+package restaurant.test;
+
+import restaurant.Kitchen;
+import junit.framework.*;
+
+/**
+ * Unit testing for Kitchen and its stations
+ */
+public class KitchenTest extends TestCase
+{
+	Kitchen<String> kitchen;
+	Kitchen.Station<String> grill;
+	Kitchen.Station<String> fryer;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		kitchen = new Kitchen<String>();
+		grill = kitchen.addStation("grill", 2);
+		fryer = kitchen.addStation("fryer", 1);
+		kitchen.assign("Steak", "grill");
+		kitchen.assign("Chicken", "fryer");
+	}
+
+	/**
+	 * Tests that a station cooks as many dishes as it has slots and queues
+	 * the rest, starting them in order as slots come free
+	 */
+	public void testSlotAccounting()
+	{
+		//step 1: Three steaks are ordered at once on a grill with 2 slots
+		assertTrue("The first steak should start at once. It didn't.", grill.start("steak1", 0));
+		assertTrue("The second steak should start at once. It didn't.", grill.start("steak2", 0));
+		assertFalse("The third steak should be queued. It wasn't.", grill.start("steak3", 0));
+
+		//check postconditions for step 1
+		assertEquals("2 slots should be busy. " + grill.getBusySlots() + " are.", 2, grill.getBusySlots());
+
+		assertEquals("1 steak should be queued. " + grill.getQueueLength() + " are.", 1, grill.getQueueLength());
+
+		assertNull("No queued steak should start while every slot is busy. One did.", grill.next(0));
+
+		//step 2: A fourth arrives; it queues behind the third even when a slot has come free
+		grill.finish(1000);
+		assertFalse("The fourth steak should queue behind the third. It didn't.", grill.start("steak4", 1000));
+
+		//check postconditions for step 2
+		assertEquals("The queued steaks should start in order. The wrong one started.", "steak3", grill.next(1000));
+
+		assertNull("No queued steak should start until another slot is free. One did.", grill.next(1000));
+
+		grill.finish(3000);
+
+		assertEquals("The fourth steak should start once a slot is free. It didn't.", "steak4", grill.next(3000));
+
+		assertNull("The line should be empty. It isn't.", grill.next(3000));
+
+		assertEquals("4 steaks should have started. " + grill.getStartedCount() + " did.", 4, grill.getStartedCount());
+
+		assertEquals("2 steaks should have queued. " + grill.getQueuedCount() + " did.", 2, grill.getQueuedCount());
+
+		assertEquals("At most 2 steaks should have been queued at once. " + grill.getMaxQueueLength() + " were.", 2, grill.getMaxQueueLength());
+	}
+
+	/**
+	 * Tests the busy time, utilization and queue wait figures
+	 */
+	public void testFigures()
+	{
+		//step 1: Chicken fries from 0 to 4000; a second waits for it and fries from 4000 to 6000
+		fryer.start("chicken1", 0);
+		fryer.start("chicken2", 1000);
+		fryer.finish(4000);
+		fryer.next(4000);
+
+		//check postconditions for step 1
+		assertEquals("The fryer should have been busy 5000 ms by 5000. It was " + fryer.getBusyTime(5000) + ".", 5000, fryer.getBusyTime(5000));
+
+		fryer.finish(6000);
+
+		assertEquals("The fryer should have been busy 6000 ms. It was " + fryer.getBusyTime(8000) + ".", 6000, fryer.getBusyTime(8000));
+
+		assertEquals("The fryer should have been busy 3/4 of the time to 8000. It was " + fryer.getUtilization(0, 8000) + ".",
+				0.75, fryer.getUtilization(0, 8000), 1e-9);
+
+		assertEquals("The second chicken waited 3000 ms, so the mean wait over 2 should be 1500. It was " + fryer.getMeanQueueWait() + ".",
+				1500, fryer.getMeanQueueWait());
+
+		//step 2: One steak grills from 0 to 6000 on the 2-slot grill
+		grill.start("steak", 0);
+		grill.finish(6000);
+
+		assertEquals("The grill should have used half of its slot time. It used " + grill.getUtilization(0, 6000) + ".",
+				0.5, grill.getUtilization(0, 6000), 1e-9);
+
+		assertSame("The fryer should be busiest for its slots. It wasn't.", fryer, kitchen.getBusiest(8000));
+	}
+
+	/**
+	 * Tests looking up stations by food and name
+	 */
+	public void testStations()
+	{
+		assertSame("Steak should be cooked at the grill. It isn't.", grill, kitchen.stationFor("Steak"));
+
+		assertNull("Salad has no station, so it should be cooked without limit. It isn't.", kitchen.stationFor("Salad"));
+
+		assertSame("The fryer should be found by name. It wasn't.", fryer, kitchen.getStation("fryer"));
+
+		assertEquals("The stations should be in the order they were added. They are " + kitchen.getStations() + ".",
+				"[grill, fryer]", kitchen.getStations().toString());
+
+		try {
+			kitchen.assign("Pizza", "oven");
+			fail("Assigning a food to a missing station should throw.");
+		} catch (IllegalArgumentException e) {
+		}
+
+		assertNull("Pizza should not have been given a station. It was.", kitchen.stationFor("Pizza"));
+
+		assertNull("An empty kitchen has no busiest station.", new Kitchen<String>().getBusiest(0));
+	}
+}
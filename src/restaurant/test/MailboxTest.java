@@ -0,0 +1,113 @@
+package restaurant.test;
+
+import agent.Mailbox;
+import junit.framework.*;
+
+/**
+ * Unit testing for Mailbox
+ */
+public class MailboxTest extends TestCase
+{
+	Mailbox mailbox;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		mailbox = new Mailbox();
+	}
+
+	/**
+	 * Message that records its number in order when run
+	 */
+	private static class Numbered implements Runnable {
+		final int producer;
+		final int number;
+		final int[] last;
+
+		Numbered(int producer, int number, int[] last) {
+			this.producer = producer;
+			this.number = number;
+			this.last = last;
+		}
+
+		public void run() {
+			if (last[producer] != number - 1) {
+				throw new AssertionFailedError("producer " + producer + ": message " + number + " after " + last[producer]);
+			}
+			last[producer] = number;
+		}
+	}
+
+	/**
+	 * Tests that messages come out in the order they went in, and an empty
+	 * mailbox says so
+	 */
+	public void testFifoOrder()
+	{
+		assertTrue("New mailbox should be empty. It isn't.", mailbox.isEmpty());
+		assertNull("Polling an empty mailbox should return null. It didn't.", mailbox.poll());
+
+		int[] last = {0};
+		for (int i = 1; i <= 100; i++) {
+			mailbox.offer(new Numbered(0, i, last));
+		}
+		assertFalse("Mailbox with messages should not be empty. It is.", mailbox.isEmpty());
+
+		Runnable r;
+		int count = 0;
+		while ((r = mailbox.poll()) != null) {
+			r.run();
+			count++;
+		}
+		assertEquals("Should have polled every message. It didn't.", 100, count);
+		assertEquals("Last message run should be the last offered. It isn't.", 100, last[0]);
+		assertTrue("Drained mailbox should be empty. It isn't.", mailbox.isEmpty());
+	}
+
+	/**
+	 * Tests that concurrent producers lose no messages and each producer's
+	 * messages keep their order while the consumer polls alongside them
+	 */
+	public void testConcurrentProducers() throws InterruptedException
+	{
+		final int producers = 4;
+		final int each = 20000;
+		final int[] last = new int[producers];
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 1; i <= each; i++) {
+						mailbox.offer(new Numbered(producer, i, last));
+					}
+				}
+			});
+			threads[p].start();
+		}
+
+		int count = 0;
+		long deadline = System.currentTimeMillis() + 10000;
+		while (count < producers * each && System.currentTimeMillis() < deadline) {
+			Runnable r = mailbox.poll();
+			if (r == null) {
+				Thread.yield();
+				continue;
+			}
+			r.run();
+			count++;
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+
+		assertEquals("Consumer should have received every message. It didn't.", producers * each, count);
+		for (int p = 0; p < producers; p++) {
+			assertEquals("Producer " + p + "'s messages should all have run in order. They didn't.", each, last[p]);
+		}
+		assertNull("Nothing should be left to poll. Something was.", mailbox.poll());
+		assertTrue("Drained mailbox should be empty. It isn't.", mailbox.isEmpty());
+	}
+}
@@ -0,0 +1,102 @@
+package restaurant.test;
+
+import restaurant.ReservationBook;
+import restaurant.ReservationBook.Reservation;
+import junit.framework.*;
+
+/**
+ * Unit testing for ReservationBook
+ */
+public class ReservationBookTest extends TestCase
+{
+	ReservationBook book;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test:
+	 * tables 1 and 2 seat 2, table 3 seats 4
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		book = new ReservationBook(new int[] {2, 2, 4});
+	}
+
+	/**
+	 * Tests that a party gets the smallest table that fits, the lowest-numbered among equals
+	 */
+	public void testBestFit()
+	{
+		Reservation r = book.book("ann", 2, 0, 100);
+		assertEquals("A party of 2 should get table 1. It didn't.", 1, r.getTable());
+
+		r = book.book("bob", 2, 50, 100);
+		assertEquals("The next party of 2 should get table 2, table 1 being taken. It didn't.", 2, r.getTable());
+
+		r = book.book("cal", 2, 50, 100);
+		assertEquals("A party of 2 should get the 4-top when the 2-tops are taken. It didn't.", 3, r.getTable());
+
+		assertNull("A party of 2 should not get a table when every table is taken. It did.", book.book("dee", 2, 60, 10));
+
+		assertNull("A party of 5 should not get a table. It did.", book.book("eve", 5, 1000, 10));
+
+		assertEquals("Book should hold 3 reservations. It doesn't.", 3, book.size());
+	}
+
+	/**
+	 * Tests that bookings are half-open intervals: back to back is fine, any overlap is not
+	 */
+	public void testIntervalOverlap()
+	{
+		assertNotNull("Booking an empty table should work. It didn't.", book.bookTable("ann", 1, 100, 100));
+
+		assertFalse("[100, 200) should overlap [150, 160). It doesn't.", book.isFree(1, 150, 160));
+		assertFalse("[100, 200) should overlap [50, 101). It doesn't.", book.isFree(1, 50, 101));
+		assertFalse("[100, 200) should overlap [199, 300). It doesn't.", book.isFree(1, 199, 300));
+		assertFalse("[100, 200) should overlap [0, 1000). It doesn't.", book.isFree(1, 0, 1000));
+		assertTrue("[100, 200) should not overlap [0, 100). It does.", book.isFree(1, 0, 100));
+		assertTrue("[100, 200) should not overlap [200, 300). It does.", book.isFree(1, 200, 300));
+		assertTrue("Table 2 should be free. It isn't.", book.isFree(2, 100, 200));
+
+		assertNull("Booking an overlapping stretch of the same table should fail. It didn't.", book.bookTable("bob", 1, 150, 100));
+		assertNotNull("Booking right after should work. It didn't.", book.bookTable("bob", 1, 200, 100));
+		assertNotNull("Booking right before should work. It didn't.", book.bookTable("cal", 1, 0, 100));
+
+		assertEquals("Only table 2 and the 4-top should be free for a 2 over [150, 160). They aren't.", 2, book.countFree(2, 150, 160));
+		assertEquals("Only the 4-top should be free for a 3 over [150, 160). It isn't.", 1, book.countFree(3, 150, 160));
+	}
+
+	/**
+	 * Tests that booking again under a name replaces the old booking, even
+	 * over an overlapping stretch, and a failed rebooking keeps the old one
+	 */
+	public void testSameNameReplacement()
+	{
+		Reservation first = book.bookTable("ann", 1, 100, 100);
+
+		Reservation moved = book.bookTable("ann", 1, 150, 100);
+		assertNotNull("Moving a booking to an overlapping stretch of its own table should work. It didn't.", moved);
+		assertFalse("The old booking should be out of the book, so cancelling it does nothing. It isn't.", book.cancel(first));
+		assertSame("The name should find the new booking. It doesn't.", moved, book.find("ann"));
+		assertEquals("Book should hold 1 reservation. It doesn't.", 1, book.size());
+		assertTrue("The stretch only the old booking covered should be free. It isn't.", book.isFree(1, 100, 150));
+
+		assertNotNull("Another party should be able to book table 2. It couldn't.", book.bookTable("bob", 2, 0, 1000));
+		assertNull("Moving to a taken table should fail. It didn't.", book.bookTable("ann", 2, 500, 100));
+		assertSame("A failed rebooking should keep the old booking. It didn't.", moved, book.find("ann"));
+		assertFalse("The old booking should still hold its table. It doesn't.", book.isFree(1, 150, 250));
+		assertEquals("Book should hold 2 reservations. It doesn't.", 2, book.size());
+	}
+
+	/**
+	 * Tests cancelling a reservation
+	 */
+	public void testCancel()
+	{
+		Reservation r = book.bookTable("ann", 1, 100, 100);
+
+		assertTrue("Cancelling a booked reservation should return true. It didn't.", book.cancel(r));
+		assertNull("A cancelled reservation should not be found by name. It was.", book.find("ann"));
+		assertTrue("A cancelled reservation's stretch should be free. It isn't.", book.isFree(1, 100, 200));
+		assertEquals("Book should be empty. It isn't.", 0, book.size());
+		assertFalse("Cancelling twice should return false. It didn't.", book.cancel(r));
+	}
+}
@@ -0,0 +1,93 @@
+package restaurant.test;
+
+import agent.TimerService;
+import agent.TimingWheel;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.*;
+
+/**
+ * Unit testing for TimingWheel.  Runs against the wall clock with a 1 ms
+ * tick, so the first wheel spans 64 ms and later timers cascade down.
+ */
+public class TimingWheelTest extends TestCase
+{
+	TimingWheel wheel;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		wheel = new TimingWheel(1);
+	}
+
+	/**
+	 * Tests that timers on the first wheel and ones cascaded from coarser
+	 * wheels all run, in deadline order, and never early
+	 */
+	public void testTimersRunInOrderAndNotEarly() throws InterruptedException
+	{
+		//20 and 40 ms sit on the first wheel; 100, 250 and 400 ms start on the second and cascade
+		final long[] delays = {400, 20, 250, 40, 100};
+		final List<Long> ran = Collections.synchronizedList(new ArrayList<Long>());
+		final List<String> early = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch done = new CountDownLatch(delays.length);
+		final long start = System.nanoTime();
+		for (final long delay : delays) {
+			wheel.schedule(new Runnable() {
+				public void run() {
+					long elapsed = (System.nanoTime() - start) / 1000000L;
+					if (elapsed < delay) {
+						early.add(delay + " ms timer ran after " + elapsed + " ms");
+					}
+					ran.add(delay);
+					done.countDown();
+				}
+			}, delay);
+		}
+		assertTrue("Every timer should have run within 5 s. They didn't: " + ran, done.await(5, TimeUnit.SECONDS));
+
+		assertTrue("No timer should run early. These did: " + early, early.isEmpty());
+		assertEquals("Timers should run in deadline order. They didn't.", Arrays.asList(20L, 40L, 100L, 250L, 400L), ran);
+		assertEquals("Wheel should have no timers pending. It doesn't.", 0, wheel.getPendingCount());
+	}
+
+	/**
+	 * Tests that a cancelled timer never runs, cancelling twice or after the
+	 * timer ran returns false, and cancelling a timer waiting to cascade works
+	 */
+	public void testCancel() throws InterruptedException
+	{
+		final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch done = new CountDownLatch(1);
+		TimerService.Timeout near = wheel.schedule(new Runnable() {
+			public void run() {
+				ran.add("near");
+			}
+		}, 10);
+		TimerService.Timeout far = wheel.schedule(new Runnable() {
+			public void run() {
+				ran.add("far");
+			}
+		}, 150);
+		TimerService.Timeout kept = wheel.schedule(new Runnable() {
+			public void run() {
+				ran.add("kept");
+				done.countDown();
+			}
+		}, 200);
+
+		assertTrue("Cancelling a pending timer should return true. It didn't.", near.cancel());
+		assertFalse("Cancelling a timer twice should return false. It didn't.", near.cancel());
+		assertTrue("Cancelling a timer on a coarse wheel should return true. It didn't.", far.cancel());
+		assertEquals("Wheel should have 1 timer pending. It doesn't.", 1, wheel.getPendingCount());
+
+		assertTrue("The timer left should have run within 5 s. It didn't.", done.await(5, TimeUnit.SECONDS));
+
+		assertEquals("Only the timer not cancelled should run. Instead these ran: " + ran, Arrays.asList("kept"), ran);
+		assertFalse("Cancelling a timer that already ran should return false. It didn't.", kept.cancel());
+		assertEquals("Wheel should have no timers pending. It doesn't.", 0, wheel.getPendingCount());
+	}
+}
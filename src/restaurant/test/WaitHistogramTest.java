@@ -0,0 +1,93 @@
+package restaurant.test;
+
+import java.util.*;
+
+import agent.Constants;
+import restaurant.WaitHistogram;
+import junit.framework.*;
+
+/**
+ * Unit testing for WaitHistogram
+ */
+public class WaitHistogramTest extends TestCase
+{
+	WaitHistogram waits;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		waits = new WaitHistogram();
+	}
+
+	/**
+	 * Tests that short waits are read back exactly, and nothing recorded reads as 0
+	 */
+	public void testShortWaitsExact()
+	{
+		assertEquals("An empty histogram should read 0. It didn't.", 0, waits.getPercentile(99));
+
+		for (int i = 1; i <= 20; i++) {
+			waits.record(i);
+		}
+		waits.record(-5);
+
+		assertEquals("The median of 0 to 20 ms should be 10 ms. It was " + waits.getPercentile(50) + ".", 10, waits.getPercentile(50));
+
+		assertEquals("The 100th percentile should be the longest wait. It was " + waits.getPercentile(100) + ".", 20, waits.getPercentile(100));
+
+		assertEquals("The 0th percentile should be the shortest wait, a negative one counting as 0. It was " + waits.getPercentile(0) + ".",
+				0, waits.getPercentile(0));
+
+		assertEquals("21 waits should have been recorded. " + waits.getCount() + " were.", 21, waits.getCount());
+	}
+
+	/**
+	 * Tests that percentiles of long waits are within 3% above the true
+	 * ones and never above the longest wait
+	 */
+	public void testLongWaitsClose()
+	{
+		Random random = new Random(7);
+		List<Long> all = new ArrayList<Long>();
+		for (int i = 0; i < 10000; i++) {
+			long wait = (long)(random.nextDouble() * random.nextDouble() * Constants.HOUR);
+			waits.record(wait);
+			all.add(wait);
+		}
+		Collections.sort(all);
+
+		for (double p : new double[] {1, 50, 90, 99, 99.9, 100}) {
+			long exact = all.get((int)Math.ceil(p / 100 * all.size()) - 1);
+			long read = waits.getPercentile(p);
+			assertTrue("The " + p + "th percentile should be " + exact + " ms or up to 3% more. It was " + read + ".",
+					read >= exact && read <= exact + exact * 3 / 100 + 1);
+		}
+
+		assertEquals("The 100th percentile should be exactly the longest wait. It wasn't.", (long)all.get(all.size() - 1), waits.getPercentile(100));
+	}
+
+	/**
+	 * Tests that several histograms read together give the same
+	 * percentiles as one histogram with all their waits
+	 */
+	public void testPartsTogether()
+	{
+		WaitHistogram part1 = new WaitHistogram();
+		WaitHistogram part2 = new WaitHistogram();
+		for (int i = 0; i < 1000; i++) {
+			long wait = i * 37 % 5000;
+			waits.record(wait);
+			(i % 3 == 0 ? part1 : part2).record(wait);
+		}
+
+		for (double p : new double[] {0, 25, 50, 99, 100}) {
+			assertEquals("The " + p + "th percentile of the parts should match the whole. It didn't.",
+					waits.getPercentile(p), WaitHistogram.percentile(Arrays.asList(part1, part2), p));
+		}
+
+		assertEquals("Parts with no waits should read 0. They didn't.",
+				0, WaitHistogram.percentile(Arrays.asList(new WaitHistogram(), new WaitHistogram()), 50));
+	}
+}
@@ -0,0 +1,155 @@
+package restaurant.test;
+
+import java.util.*;
+
+import agent.Constants;
+import restaurant.Waitlist;
+import junit.framework.*;
+
+/**
+ * Unit testing for Waitlist
+ */
+public class WaitlistTest extends TestCase
+{
+	Waitlist<String> line;
+
+	/**
+	 * Provides the common setup for all tests and is called at the beginning of each test
+	 */
+	public void setUp() throws Exception{
+		super.setUp();
+		line = new Waitlist<String>();
+	}
+
+	/**
+	 * Returns everyone in line, front first, by iterating
+	 */
+	private List<String> contents() {
+		List<String> list = new ArrayList<String>();
+		for (String s : line) {
+			list.add(s);
+		}
+		return list;
+	}
+
+	/**
+	 * Tests first come, first served among equal priorities
+	 */
+	public void testFirstComeFirstServed()
+	{
+		line.add("a");
+		line.add("b");
+		line.add("c");
+
+		assertEquals("The line should be in arrival order. It is " + contents() + ".", Arrays.asList("a", "b", "c"), contents());
+
+		assertEquals("peek should return the front of the line. It didn't.", "a", line.peek());
+
+		assertEquals("poll should return the front of the line. It didn't.", "a", line.poll());
+
+		assertEquals("poll should return the next in line. It didn't.", "b", line.poll());
+
+		assertEquals("1 should be left in line. " + line.size() + " are.", 1, line.size());
+
+		line.poll();
+
+		assertTrue("The line should be empty. It isn't.", line.isEmpty());
+
+		assertNull("peek on an empty line should return null. It didn't.", line.peek());
+
+		assertNull("poll on an empty line should return null. It didn't.", line.poll());
+	}
+
+	/**
+	 * Tests ordering by seating deadline, as the host uses it: a party of
+	 * a class with a shorter target wait that arrives later goes ahead of
+	 * parties whose deadlines are later than its own, and behind those
+	 * whose deadlines come first
+	 */
+	public void testDeadlineOrder()
+	{
+		//step 1: Walk-ins with a 30 minute target arrive at 0 and 10 minutes
+		line.add("walkin1", 30 * Constants.MINUTE);
+		line.add("walkin2", 40 * Constants.MINUTE);
+
+		//step 2: A party with a 15 minute target arrives at 20 minutes
+		line.add("regular", 35 * Constants.MINUTE);
+
+		//step 3: A party with a 10 minute target arrives at 20 minutes, due when the first walk-in is
+		line.add("regular2", 30 * Constants.MINUTE);
+
+		//check postconditions
+		assertEquals("The line should be in deadline order, ties by arrival. It is " + contents() + ".",
+				Arrays.asList("walkin1", "regular2", "regular", "walkin2"), contents());
+	}
+
+	/**
+	 * Tests taking people out of the line by their handle
+	 */
+	public void testHandleRemoval()
+	{
+		Waitlist.Handle<String> a = line.add("a");
+		Waitlist.Handle<String> b = line.add("b");
+		Waitlist.Handle<String> c = line.add("c");
+
+		//step 1: Someone in the middle gives up
+		assertTrue("Removing b should succeed. It didn't.", line.remove(b));
+
+		//check postconditions for step 1
+		assertFalse("b should no longer be queued, but is.", b.isQueued());
+
+		assertEquals("b should be gone from the line. It is " + contents() + ".", Arrays.asList("a", "c"), contents());
+
+		assertFalse("Removing b again should fail. It didn't.", line.remove(b));
+
+		assertFalse("Removing a null handle should fail. It didn't.", line.remove(null));
+
+		//step 2: The front is seated, then tries to leave
+		assertEquals("poll should return a. It didn't.", "a", line.poll());
+
+		assertFalse("a should no longer be queued after being polled, but is.", a.isQueued());
+
+		assertFalse("Removing a polled handle should fail. It didn't.", line.remove(a));
+
+		//check postconditions for step 2
+		assertTrue("c should still be queued. It isn't.", c.isQueued());
+
+		assertEquals("The handle should return who holds it. It didn't.", "c", c.get());
+
+		assertEquals("Only c should be left. The line is " + contents() + ".", Arrays.asList("c"), contents());
+	}
+
+	/**
+	 * Tests that people can be taken out of the line while it is being
+	 * walked, and the walk carries on behind them
+	 */
+	public void testRemoveWhileIterating()
+	{
+		Map<String, Waitlist.Handle<String>> handles = new HashMap<String, Waitlist.Handle<String>>();
+		for (String s : new String[] {"a", "b", "c", "d"}) {
+			handles.put(s, line.add(s));
+		}
+
+		List<String> seen = new ArrayList<String>();
+		for (String s : line) {
+			seen.add(s);
+			if (s.equals("b")) {
+				//b is seated and d gives up
+				line.remove(handles.get("b"));
+				line.remove(handles.get("d"));
+			}
+		}
+
+		assertEquals("The walk should have gone on past b and skipped d. It saw " + seen + ".", Arrays.asList("a", "b", "c"), seen);
+
+		assertEquals("a and c should be left. The line is " + contents() + ".", Arrays.asList("a", "c"), contents());
+
+		Iterator<String> it = line.iterator();
+		it.next();
+		try {
+			it.remove();
+			fail("Iterator remove should not be supported.");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+}
@@ -1,7 +1,8 @@
 package restaurant.test.mock;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * This class should be used by Mock agents to log significant events. For
@@ -9,15 +10,60 @@ import java.util.List;
  * The class exposes some helper methods to allow you to easily parse and search
  * these log files.
  *
+ * The log keeps only the most recent events, up to its capacity, so a real
+ * agent can keep one for a whole run. It is safe to write from any thread.
+ * For production runs it can also record only every Nth event, and keep an
+ * index of the words in its events for constant-time lookups.
+ *
  * @author Sean Turner
  *
  */
 public class EventLog {
 
 	/**
-	 * This is the backing data store for the list of events.
+	 * Number of events kept when no capacity is given
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * This is the backing data store for the list of events: a ring holding
+	 * the last count events, oldest at first.
+	 */
+	private final LoggedEvent[] events;
+	private int first = 0;
+	private int count = 0;
+
+	/**
+	 * How many events have been offered, and how many of them to keep
+	 */
+	private long offered = 0;
+	private int sampleEvery = 1;
+
+	/**
+	 * Number of kept events containing each word, or null when not indexing
 	 */
-	private LinkedList<LoggedEvent> events = new LinkedList<LoggedEvent>();
+	private final Map<String, Integer> index;
+
+	/**
+	 * Creates a log of the default capacity, without an index
+	 */
+	public EventLog() {
+		this(DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * @param capacity
+	 *            the number of most recent events to keep
+	 * @param indexed
+	 *            true to index the words of each message for containsKeyword
+	 */
+	public EventLog(int capacity, boolean indexed) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		events = new LoggedEvent[capacity];
+		index = indexed ? new HashMap<String, Integer>() : null;
+	}
 
 	/**
 	 * Add a new event to the log.
@@ -25,21 +71,91 @@ public class EventLog {
 	 * @param e
 	 */
 	public void add(LoggedEvent e) {
-		events.add(e);
+		if (sample()) {
+			keep(e);
+		}
+	}
+
+	/**
+	 * Add a new event to the log, without creating it if sampling would
+	 * drop it anyway.
+	 *
+	 * @param message
+	 *            the text of the event
+	 */
+	public void add(String message) {
+		if (sample()) {
+			keep(new LoggedEvent(message));
+		}
+	}
+
+	/**
+	 * Counts an offered event
+	 *
+	 * @return true if the event should be kept
+	 */
+	private synchronized boolean sample() {
+		return offered++ % sampleEvery == 0;
+	}
+
+	private synchronized void keep(LoggedEvent e) {
+		if (count == events.length) {
+			unindex(events[first]);
+			events[first] = e;
+			first = (first + 1) % events.length;
+		} else {
+			events[(first + count) % events.length] = e;
+			count++;
+		}
+		if (index != null) {
+			for (String word : words(e.getMessage())) {
+				Integer n = index.get(word);
+				index.put(word, n == null ? 1 : n + 1);
+			}
+		}
+	}
+
+	/**
+	 * Keep only one event out of every n offered. 1, the default, keeps every
+	 * event.
+	 *
+	 * @param n
+	 *            the sampling interval
+	 */
+	public synchronized void setSampling(int n) {
+		if (n <= 0) {
+			throw new IllegalArgumentException("sampling interval must be positive: " + n);
+		}
+		sampleEvery = n;
 	}
 
 	/**
 	 * Clear the event log
 	 */
-	public void clear() {
-		events.clear();
+	public synchronized void clear() {
+		for (int i = 0; i < events.length; i++) {
+			events[i] = null;
+		}
+		first = 0;
+		count = 0;
+		if (index != null) {
+			index.clear();
+		}
 	}
 
 	/**
 	 * @return the number of events in the log
 	 */
-	public int size() {
-		return events.size();
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * @return the number of events offered to the log since it was made,
+	 *         including ones sampled out or pushed out by newer ones
+	 */
+	public synchronized long getOfferedCount() {
+		return offered;
 	}
 
 	/**
@@ -52,10 +168,30 @@ public class EventLog {
 	 * @return true if string is contained somewhere within the text of a logged
 	 *         event. False otherwise.
 	 */
-	public boolean containsString(String message) {
-		for (LoggedEvent e : events) {
-			if (e.getMessage().contains(message)) {
-				return true;
+	public synchronized boolean containsString(String message) {
+		if (index != null && index.containsKey(message)) {
+			return true;
+		}
+		return getFirstEventWhichContainsString(message) != null;
+	}
+
+	/**
+	 * Checks whether any message in the log contains the given word. Takes
+	 * constant time on an indexed log.
+	 *
+	 * @param word
+	 *            the word to look for, without spaces
+	 * @return true if some logged event contains the word. False otherwise.
+	 */
+	public synchronized boolean containsKeyword(String word) {
+		if (index != null) {
+			return index.containsKey(word);
+		}
+		for (int i = 0; i < count; i++) {
+			for (String w : words(get(i).getMessage())) {
+				if (w.equals(word)) {
+					return true;
+				}
 			}
 		}
 		return false;
@@ -69,8 +205,9 @@ public class EventLog {
 	 * @return the first LoggedEvent which contains the given
 	 *         string
 	 */
-	public LoggedEvent getFirstEventWhichContainsString(String message) {
-		for (LoggedEvent e : events) {
+	public synchronized LoggedEvent getFirstEventWhichContainsString(String message) {
+		for (int i = 0; i < count; i++) {
+			LoggedEvent e = get(i);
 			if (e.getMessage().contains(message)) {
 				return e;
 			}
@@ -81,23 +218,51 @@ public class EventLog {
 	/**
 	 * @return the most recently LoggedEvent
 	 */
-	public LoggedEvent getLastLoggedEvent() {
-		return events.getLast();
+	public synchronized LoggedEvent getLastLoggedEvent() {
+		if (count == 0) {
+			throw new NoSuchElementException();
+		}
+		return get(count - 1);
 	}
 
-	public String toString() {
+	public synchronized String toString() {
 		StringBuilder text = new StringBuilder();
 		String newLine = System.getProperty("line.separator");
 
-		if (events.size() == 0) {
+		if (count == 0) {
 			return "Log is empty.";
 		}
 
-		for (LoggedEvent e : events) {
-			text.append(e.toString());
+		for (int i = 0; i < count; i++) {
+			text.append(get(i).toString());
 			text.append(newLine);
 		}
 		return text.toString();
 
 	}
+
+	/**
+	 * @return the i-th oldest kept event
+	 */
+	private LoggedEvent get(int i) {
+		return events[(first + i) % events.length];
+	}
+
+	private void unindex(LoggedEvent e) {
+		if (index == null) {
+			return;
+		}
+		for (String word : words(e.getMessage())) {
+			Integer n = index.get(word);
+			if (n == null || n <= 1) {
+				index.remove(word);
+			} else {
+				index.put(word, n - 1);
+			}
+		}
+	}
+
+	private static String[] words(String message) {
+		return message.trim().split("\\s+");
+	}
 }
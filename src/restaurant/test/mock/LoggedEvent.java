@@ -13,22 +13,30 @@ import java.util.Date;
 public class LoggedEvent {
 
 	/**
-	 * Represents the date and time at which the event occurred. This is useful
-	 * when you need to order events in chronological order.
+	 * Wall clock and monotonic clock read together once, so a nanoTime stamp
+	 * can be turned back into a date
 	 */
-	private Date timestamp;
+	private static final long BASE_MILLIS = System.currentTimeMillis();
+	private static final long BASE_NANOS = System.nanoTime();
+
+	/**
+	 * Represents the time at which the event occurred, from System.nanoTime().
+	 * This is useful when you need to order events in chronological order, and
+	 * unlike the wall clock it never runs backwards.
+	 */
+	private final long nanoTime;
 
 	/**
 	 * This is the body of the message. This might read something like:
 	 * msgSitCustomerAtTable called with Customer Jim at table 3.
 	 */
-	private String message;
+	private final String message;
 
 	/**
 	 * @param message
 	 */
 	public LoggedEvent(String message) {
-		timestamp = new Date();
+		nanoTime = System.nanoTime();
 		this.message = message;
 	}
 
@@ -36,7 +44,14 @@ public class LoggedEvent {
 	 * @return the timestamp
 	 */
 	public Date getTimestamp() {
-		return timestamp;
+		return new Date(BASE_MILLIS + (nanoTime - BASE_NANOS) / 1000000L);
+	}
+
+	/**
+	 * @return the timestamp as a System.nanoTime() value
+	 */
+	public long getNanoTime() {
+		return nanoTime;
 	}
 
 	/**
@@ -48,7 +63,7 @@ public class LoggedEvent {
 
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
-		sb.append(DateFormat.getTimeInstance().format(timestamp));
+		sb.append(DateFormat.getTimeInstance().format(getTimestamp()));
 		sb.append(": ");
 		sb.append(message);
 		return sb.toString();